@@ -0,0 +1,404 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.VirtualThreadPool;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+// Closed loop load with thousands of requests in flight over TCP, to compare how long the AsyncContext
+// scenario and the blocking scenarios hold on to the server threads. For each scenario:
+// - the client latency
+// - the dispatch time, from the filter chain entry to its return, ie: how long a server thread is held
+// - the time to async.complete() from the filter chain entry, for the scenarios that start an AsyncContext
+// - the server pool busy threads, sampled while the requests run, the largest pool and queue sizes,
+//   the most heap used and the most platform threads in the JVM
+// With -Djetty.demo.virtualThreads=true the server runs on a VirtualThreadPool, to compare with the QueuedThreadPool.
+// java -Dasync.concurrency=2000 -Dasync.requests=50000 \
+//   -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.AsyncErrorPathBenchmark [outputDir] [scenario...]
+public class AsyncErrorPathBenchmark
+{
+    public static final String CSV_HEADER = "version,scenario,threadPool,concurrency,requests,unexpected,throughput," +
+        "latencyP50Micros,latencyP99Micros,dispatchP50Micros,dispatchP99Micros,completeP50Micros,completeP99Micros," +
+        "meanBusyThreads,maxBusyThreads,maxThreads,maxQueued,maxHeapUsedBytes,maxPlatformThreads";
+
+    private final JettySpecific jettySpecific;
+    private final int concurrency;
+    private final int warmupRequests;
+    private final int measuredRequests;
+    private long timeoutSeconds = 30;
+
+    public AsyncErrorPathBenchmark(JettySpecific jettySpecific, int concurrency, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.concurrency = concurrency;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    // Times the dispatch of every request, and the async.complete() of the ones that start an AsyncContext
+    public static class TimingFilter implements Filter
+    {
+        private final Recorder dispatchTimes = new Recorder(3);
+        private final Recorder completeTimes = new Recorder(3);
+
+        @Override
+        public void init(FilterConfig filterConfig)
+        {
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException
+        {
+            long begin = System.nanoTime();
+            try
+            {
+                chain.doFilter(new TimedRequest((HttpServletRequest)request, begin), response);
+            }
+            finally
+            {
+                dispatchTimes.recordValue(System.nanoTime() - begin);
+            }
+        }
+
+        @Override
+        public void destroy()
+        {
+        }
+
+        private class TimedRequest extends HttpServletRequestWrapper
+        {
+            private final long begin;
+
+            private TimedRequest(HttpServletRequest request, long begin)
+            {
+                super(request);
+                this.begin = begin;
+            }
+
+            @Override
+            public AsyncContext startAsync()
+            {
+                return new TimedAsyncContext(super.startAsync(), begin);
+            }
+
+            @Override
+            public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+            {
+                return new TimedAsyncContext(super.startAsync(servletRequest, servletResponse), begin);
+            }
+        }
+
+        private class TimedAsyncContext implements AsyncContext
+        {
+            private final AsyncContext async;
+            private final long begin;
+
+            private TimedAsyncContext(AsyncContext async, long begin)
+            {
+                this.async = async;
+                this.begin = begin;
+            }
+
+            @Override
+            public void complete()
+            {
+                completeTimes.recordValue(System.nanoTime() - begin);
+                async.complete();
+            }
+
+            @Override
+            public ServletRequest getRequest()
+            {
+                return async.getRequest();
+            }
+
+            @Override
+            public ServletResponse getResponse()
+            {
+                return async.getResponse();
+            }
+
+            @Override
+            public boolean hasOriginalRequestAndResponse()
+            {
+                return async.hasOriginalRequestAndResponse();
+            }
+
+            @Override
+            public void dispatch()
+            {
+                async.dispatch();
+            }
+
+            @Override
+            public void dispatch(String path)
+            {
+                async.dispatch(path);
+            }
+
+            @Override
+            public void dispatch(ServletContext context, String path)
+            {
+                async.dispatch(context, path);
+            }
+
+            @Override
+            public void start(Runnable run)
+            {
+                async.start(run);
+            }
+
+            @Override
+            public void addListener(AsyncListener listener)
+            {
+                async.addListener(listener);
+            }
+
+            @Override
+            public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse)
+            {
+                async.addListener(listener, servletRequest, servletResponse);
+            }
+
+            @Override
+            public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException
+            {
+                return async.createListener(clazz);
+            }
+
+            @Override
+            public void setTimeout(long timeout)
+            {
+                async.setTimeout(timeout);
+            }
+
+            @Override
+            public long getTimeout()
+            {
+                return async.getTimeout();
+            }
+        }
+    }
+
+    // Samples the pool from its own thread, so that the sampling does not occupy a pool thread
+    private static class OccupancySampler implements Runnable
+    {
+        private final ThreadPool threadPool;
+        private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        private volatile boolean running = true;
+        private long samples;
+        private long busyThreadsSum;
+        private int maxBusyThreads;
+        private int maxThreads;
+        private int maxQueued;
+        private long maxHeapUsed;
+        private int maxPlatformThreads;
+
+        private OccupancySampler(ThreadPool threadPool)
+        {
+            this.threadPool = threadPool;
+        }
+
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                int threads = threadPool.getThreads();
+                int busyThreads = Math.max(0, threads - threadPool.getIdleThreads());
+                samples++;
+                busyThreadsSum += busyThreads;
+                maxBusyThreads = Math.max(maxBusyThreads, busyThreads);
+                maxThreads = Math.max(maxThreads, threads);
+                if (threadPool instanceof QueuedThreadPool)
+                    maxQueued = Math.max(maxQueued, ((QueuedThreadPool)threadPool).getQueueSize());
+                maxHeapUsed = Math.max(maxHeapUsed, memoryMXBean.getHeapMemoryUsage().getUsed());
+                // Virtual threads are not counted, the carrier threads are
+                maxPlatformThreads = Math.max(maxPlatformThreads, threadMXBean.getThreadCount());
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(500));
+            }
+        }
+
+        private double getMeanBusyThreads()
+        {
+            return samples == 0 ? Double.NaN : busyThreadsSum / (double)samples;
+        }
+    }
+
+    public String run(ErrorScenario scenario) throws Exception
+    {
+        TimingFilter timingFilter = new TimingFilter();
+        ServletContextHandler contextHandler = scenario.newContextHandler(jettySpecific.getConfig());
+        FilterHolder filterHolder = new FilterHolder(timingFilter);
+        filterHolder.setAsyncSupported(true);
+        contextHandler.addFilter(filterHolder, "/toss/", EnumSet.of(DispatcherType.REQUEST));
+
+        Server server = jettySpecific.newServer();
+        // All the connections open at once, a backlog shorter than that drops their SYNs, and the requests whose
+        // handshake the server never completes time out, the QueuedThreadPool acceptor is just fast enough to hide it
+        ((ServerConnector)server.getConnectors()[0]).setAcceptQueueSize(concurrency);
+        server.setHandler(contextHandler);
+        HttpClient client = jettySpecific.newClient();
+        // One connection per request in flight, none of them waits for another one
+        client.setMaxConnectionsPerDestination(concurrency);
+        client.setMaxRequestsQueuedPerDestination(concurrency * 2);
+        try
+        {
+            server.start();
+            client.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+            ThreadPool threadPool = server.getThreadPool();
+
+            Recorder latencies = new Recorder(3);
+            send(client, tossURI, scenario, warmupRequests, latencies);
+            latencies.getIntervalHistogram();
+            timingFilter.dispatchTimes.getIntervalHistogram();
+            timingFilter.completeTimes.getIntervalHistogram();
+
+            OccupancySampler sampler = new OccupancySampler(threadPool);
+            Thread samplerThread = new Thread(sampler, "occupancy-sampler");
+            samplerThread.setDaemon(true);
+            samplerThread.start();
+            long begin = System.nanoTime();
+            long unexpected = send(client, tossURI, scenario, measuredRequests, latencies);
+            long elapsed = System.nanoTime() - begin;
+            sampler.running = false;
+            samplerThread.join();
+
+            Histogram latency = latencies.getIntervalHistogram();
+            Histogram dispatch = timingFilter.dispatchTimes.getIntervalHistogram();
+            Histogram complete = timingFilter.completeTimes.getIntervalHistogram();
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%d,%d",
+                ScenarioRunner.getJettyVersion(), scenario, describe(threadPool), concurrency, measuredRequests, unexpected,
+                measuredRequests / (elapsed / (double)TimeUnit.SECONDS.toNanos(1)),
+                micros(latency, 50), micros(latency, 99),
+                micros(dispatch, 50), micros(dispatch, 99),
+                micros(complete, 50), micros(complete, 99),
+                sampler.getMeanBusyThreads(), sampler.maxBusyThreads, sampler.maxThreads, sampler.maxQueued,
+                sampler.maxHeapUsed, sampler.maxPlatformThreads);
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    private static String describe(ThreadPool threadPool)
+    {
+        if (threadPool instanceof VirtualThreadPool)
+            return ((VirtualThreadPool)threadPool).isVirtual() ? "virtual" : "platform-per-task";
+        return threadPool.getClass().getSimpleName();
+    }
+
+    // NaN when nothing was recorded, eg: the time to async.complete() of a blocking scenario
+    private static double micros(Histogram histogram, double percentile)
+    {
+        return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getValueAtPercentile(percentile) / 1000D;
+    }
+
+    // Keeps concurrency requests in flight until requests were sent, returns how many did not have the expected outcome
+    private long send(HttpClient client, URI tossURI, ErrorScenario scenario, int requests, Recorder latencies) throws InterruptedException
+    {
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicLong unexpected = new AtomicLong();
+        for (int i = 0; i < requests; i++)
+        {
+            inFlight.acquire();
+            long begin = System.nanoTime();
+            client.newRequest(tossURI)
+                .timeout(timeoutSeconds, TimeUnit.SECONDS)
+                .send(result ->
+                {
+                    latencies.recordValue(System.nanoTime() - begin);
+                    boolean aborted = result.isFailed();
+                    boolean expected = scenario.getOutcome() == ErrorScenario.Outcome.ABORTED
+                        ? aborted
+                        : !aborted && result.getResponse().getStatus() == 301;
+                    if (!expected)
+                        unexpected.incrementAndGet();
+                    inFlight.release();
+                });
+        }
+        // The requests still in flight complete, at the latest, when they time out
+        if (!inFlight.tryAcquire(concurrency, timeoutSeconds + 5, TimeUnit.SECONDS))
+            throw new IllegalStateException("Requests still in flight after " + (timeoutSeconds + 5) + "s");
+        return unexpected.get();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/async-error-path");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        // The AsyncContext scenario, against the blocking ones with the same kind of body
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.ASYNC_CONTEXT_SEND_ERROR_WRITE,
+                ErrorScenario.SEND_ERROR, ErrorScenario.SEND_ERROR_WRITE, ErrorScenario.WRITE_SEND_ERROR));
+
+        AsyncErrorPathBenchmark benchmark = new AsyncErrorPathBenchmark(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("async.concurrency", 2_000), Integer.getInteger("async.warmup", 5_000), Integer.getInteger("async.requests", 50_000));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("async-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                String line = benchmark.run(scenario);
+                System.out.println(line);
+                writer.println(line);
+                writer.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
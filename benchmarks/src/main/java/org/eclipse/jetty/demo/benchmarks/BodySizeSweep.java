@@ -0,0 +1,368 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.SizedScenario;
+import org.eclipse.jetty.demo.common.StreamingBodyVerifier;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Runs the SizedScenario across a grid of pre-sendError write sizes and error page body sizes, from bytes to
+// gigabytes, over TCP. The client verifies each body with a StreamingBodyVerifier, so it costs the same memory
+// whatever the size, and the heap curve is the server one.
+// Writes <outputDir>/body-size-jetty-<version>.csv with, for every cell:
+// - outcome: error-page, redirect-only (301 without the error page), aborted, timeout or status-<code>
+// - framing: content-length, chunked or close, of the first response
+// - receivedBytes: decoded body bytes of the first response
+// - requests: sized so that each cell moves about sweep.bytesPerCell bytes, within [1, sweep.requests]
+// - throughput, p50Micros, megabytesPerSecond: over these requests, NaN when they did not all get the outcome
+// - allocatedBytesPerRequest: allocated by the server threads, n/a on virtual threads
+// - peakHeapBytes: the highest heap + direct memory used during the requests, over the used memory before them
+// And <outputDir>/body-size-switch-jetty-<version>.csv with the switch points found in the grid:
+// - chunked: per pre-write size, the smallest body size with a chunked error page, after the largest one with a Content-Length
+// - aborted: per body size, the smallest pre-write size that aborted the response, after the largest one that did not
+// The switch is somewhere between these two sizes, refine the grid around them to narrow it.
+// java -Dsweep.preSizes=0,8192,65536 -Dsweep.bodySizes=64,65536,1073741824 -Dsweep.behaviors=PLAIN,GZIP_EXTERNAL \
+//   -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.BodySizeSweep [outputDir]
+public class BodySizeSweep
+{
+    public static final String CSV_HEADER = "version,behavior,preWriteSize,bodySize,outcome,framing,receivedBytes," +
+        "requests,throughput,p50Micros,megabytesPerSecond,allocatedBytesPerRequest,peakHeapBytes";
+    public static final String SWITCH_CSV_HEADER = "version,behavior,switch,fixedSize,lastSizeBefore,firstSizeAfter";
+
+    private final JettySpecific jettySpecific;
+    private final long bytesPerCell;
+    private final int maxRequests;
+
+    public BodySizeSweep(JettySpecific jettySpecific, long bytesPerCell, int maxRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.bytesPerCell = bytesPerCell;
+        this.maxRequests = maxRequests;
+    }
+
+    public Cell run(Behavior behavior, long preWriteSize, long bodySize) throws Exception
+    {
+        SizedScenario scenario = new SizedScenario(preWriteSize, bodySize);
+        Server server = jettySpecific.newServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        HttpClient client = null;
+        try
+        {
+            server.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+            client = jettySpecific.newClient();
+            client.start();
+
+            StreamingBodyVerifier first = send(client, tossURI, scenario);
+            String outcome = outcome(first);
+            Cell cell = new Cell(behavior, preWriteSize, bodySize, outcome, first == null ? "none" : framing(first));
+
+            long size = Math.max(1, preWriteSize + bodySize);
+            int requests = (int)Math.max(1, Math.min(maxRequests, bytesPerCell / size));
+            // The first request warmed up the small cells, the large ones are their own warmup
+            for (int i = 0; i < Math.min(requests, 100) && size < 1024 * 1024; i++)
+            {
+                send(client, tossURI, scenario);
+            }
+
+            List<String> threadPoolNames = ScenarioRunner.getThreadPoolNames(server);
+            MemorySampler sampler = new MemorySampler();
+            long[] latencies = new long[requests];
+            long received = 0;
+            boolean consistent = true;
+            long allocated = ScenarioRunner.getAllocatedBytes(threadPoolNames, false);
+            sampler.start();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++)
+            {
+                long begin = System.nanoTime();
+                StreamingBodyVerifier verifier = send(client, tossURI, scenario);
+                latencies[i] = System.nanoTime() - begin;
+                consistent &= outcome.equals(outcome(verifier));
+                if (verifier != null)
+                    received += verifier.getContentBytes();
+            }
+            long elapsed = System.nanoTime() - start;
+            allocated = ScenarioRunner.getAllocatedBytes(threadPoolNames, false) - allocated;
+            long peak = sampler.finish();
+            Arrays.sort(latencies);
+
+            double seconds = elapsed / (double)TimeUnit.SECONDS.toNanos(1);
+            cell.line = String.format(Locale.ROOT, "%s,%s,%d,%d,%s,%s,%d,%d,%.1f,%.1f,%.1f,%s,%d",
+                ScenarioRunner.getJettyVersion(), behavior, preWriteSize, bodySize, cell.outcome, cell.framing,
+                first == null ? 0 : first.getContentBytes(), requests,
+                consistent ? requests / seconds : Double.NaN,
+                consistent ? ScenarioRunner.percentile(latencies, 0.50) / 1000D : Double.NaN,
+                consistent ? received / seconds / (1024 * 1024) : Double.NaN,
+                ScenarioRunner.isThreadPoolMeasured(server) ? String.valueOf(allocated / requests) : "n/a", peak);
+            return cell;
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    // The verifier of the response, or null if it timed out
+    private static StreamingBodyVerifier send(HttpClient client, URI tossURI, SizedScenario scenario) throws Exception
+    {
+        StreamingBodyVerifier verifier = new StreamingBodyVerifier(StandardCharsets.UTF_8, scenario.getExpectedFragments());
+        client.newRequest(tossURI).send(verifier);
+        // At least 1MiB/s, whatever the size
+        long timeout = (scenario.getPreWriteSize() + scenario.getBodySize()) / (1024 * 1024) + 30;
+        try
+        {
+            verifier.await(timeout, TimeUnit.SECONDS);
+            return verifier;
+        }
+        catch (TimeoutException x)
+        {
+            return null;
+        }
+    }
+
+    private static String outcome(StreamingBodyVerifier verifier) throws Exception
+    {
+        if (verifier == null)
+            return "timeout";
+        Result result = verifier.await(0, TimeUnit.SECONDS);
+        if (result.getFailure() != null)
+            return "aborted";
+        int status = result.getResponse().getStatus();
+        if (status != 301)
+            return "status-" + status;
+        return verifier.isAllFound() ? "error-page" : "redirect-only";
+    }
+
+    private static String framing(StreamingBodyVerifier verifier) throws Exception
+    {
+        HttpFields headers = verifier.await(0, TimeUnit.SECONDS).getResponse().getHeaders();
+        if (headers.containsKey(HttpHeader.TRANSFER_ENCODING.asString()))
+            return "chunked";
+        if (headers.containsKey(HttpHeader.CONTENT_LENGTH.asString()))
+            return "content-length";
+        return "close";
+    }
+
+    // Chunked: per pre-write size, along the body sizes. Aborted: per body size, along the pre-write sizes.
+    public static List<String> switchPoints(List<Cell> cells, long[] preSizes, long[] bodySizes)
+    {
+        List<String> lines = new ArrayList<>();
+        for (Behavior behavior : Behavior.values())
+        {
+            for (long preSize : preSizes)
+            {
+                long before = -1;
+                long after = -1;
+                for (long bodySize : bodySizes)
+                {
+                    Cell cell = find(cells, behavior, preSize, bodySize);
+                    if (cell == null || !"error-page".equals(cell.outcome))
+                        continue;
+                    if ("chunked".equals(cell.framing))
+                    {
+                        after = bodySize;
+                        break;
+                    }
+                    before = bodySize;
+                }
+                if (before >= 0 || after >= 0)
+                    lines.add(switchLine(behavior, "chunked", preSize, before, after));
+            }
+            for (long bodySize : bodySizes)
+            {
+                long before = -1;
+                long after = -1;
+                for (long preSize : preSizes)
+                {
+                    Cell cell = find(cells, behavior, preSize, bodySize);
+                    if (cell == null)
+                        continue;
+                    if ("aborted".equals(cell.outcome))
+                    {
+                        after = preSize;
+                        break;
+                    }
+                    before = preSize;
+                }
+                if (before >= 0 || after >= 0)
+                    lines.add(switchLine(behavior, "aborted", bodySize, before, after));
+            }
+        }
+        return lines;
+    }
+
+    private static Cell find(List<Cell> cells, Behavior behavior, long preSize, long bodySize)
+    {
+        for (Cell cell : cells)
+        {
+            if (cell.behavior == behavior && cell.preWriteSize == preSize && cell.bodySize == bodySize)
+                return cell;
+        }
+        return null;
+    }
+
+    // An empty size is no cell on that side of the switch
+    private static String switchLine(Behavior behavior, String name, long fixedSize, long before, long after)
+    {
+        return String.format(Locale.ROOT, "%s,%s,%s,%d,%s,%s", ScenarioRunner.getJettyVersion(), behavior, name, fixedSize,
+            before < 0 ? "" : String.valueOf(before), after < 0 ? "" : String.valueOf(after));
+    }
+
+    private static long usedMemory()
+    {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if ("direct".equals(bufferPool.getName()))
+                used += bufferPool.getMemoryUsed();
+        }
+        return used;
+    }
+
+    private static long[] sizes(String property, String defaults)
+    {
+        return Arrays.stream(System.getProperty(property, defaults).split(",")).mapToLong(size -> Long.parseLong(size.trim())).toArray();
+    }
+
+    public static class Cell
+    {
+        private final Behavior behavior;
+        private final long preWriteSize;
+        private final long bodySize;
+        private final String outcome;
+        private final String framing;
+        private String line;
+
+        private Cell(Behavior behavior, long preWriteSize, long bodySize, String outcome, String framing)
+        {
+            this.behavior = behavior;
+            this.preWriteSize = preWriteSize;
+            this.bodySize = bodySize;
+            this.outcome = outcome;
+            this.framing = framing;
+        }
+
+        @Override
+        public String toString()
+        {
+            return line;
+        }
+    }
+
+    // Polls the used memory every 10ms, from a baseline taken after a GC. The garbage of the requests counts
+    // until it is collected, so this is an upper bound of what the server holds on to, not a retained size.
+    private static class MemorySampler extends Thread
+    {
+        private final long baseline;
+        private volatile boolean running = true;
+        private long peak;
+
+        private MemorySampler()
+        {
+            super("memory-sampler");
+            setDaemon(true);
+            System.gc();
+            baseline = usedMemory();
+        }
+
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                peak = Math.max(peak, usedMemory());
+                try
+                {
+                    Thread.sleep(10);
+                }
+                catch (InterruptedException x)
+                {
+                    return;
+                }
+            }
+        }
+
+        private long finish() throws InterruptedException
+        {
+            running = false;
+            join();
+            return Math.max(0, Math.max(peak, usedMemory()) - baseline);
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/body-size");
+        long[] preSizes = sizes("sweep.preSizes", "0,64,1024,4096,8192,16384,65536,1048576");
+        long[] bodySizes = sizes("sweep.bodySizes", "0,64,1024,4096,16384,65536,1048576,16777216,268435456,1073741824");
+        List<Behavior> behaviors = new ArrayList<>();
+        for (String behavior : System.getProperty("sweep.behaviors", Behavior.PLAIN.name()).split(","))
+        {
+            behaviors.add(Behavior.valueOf(behavior.trim()));
+        }
+
+        BodySizeSweep sweep = new BodySizeSweep(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Long.getLong("sweep.bytesPerCell", 256L * 1024 * 1024), Integer.getInteger("sweep.requests", 1_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("body-size-jetty-" + version + ".csv");
+        List<Cell> cells = new ArrayList<>();
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (Behavior behavior : behaviors)
+            {
+                for (long preSize : preSizes)
+                {
+                    for (long bodySize : bodySizes)
+                    {
+                        Cell cell = sweep.run(behavior, preSize, bodySize);
+                        cells.add(cell);
+                        System.out.println(cell);
+                        writer.println(cell);
+                        writer.flush();
+                    }
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+
+        Path switchOutput = outputDir.resolve("body-size-switch-jetty-" + version + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(switchOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(SWITCH_CSV_HEADER);
+            System.out.println(SWITCH_CSV_HEADER);
+            for (String line : switchPoints(cells, preSizes, bodySizes))
+            {
+                System.out.println(line);
+                writer.println(line);
+            }
+        }
+        System.out.println("Wrote " + switchOutput);
+    }
+}
@@ -0,0 +1,193 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.CountingByteBufferPool;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// What each scenario takes from the ByteBufferPool of the connector, with an ArrayByteBufferPool and with a
+// MappedByteBufferPool, from the CountingByteBufferPool that every JettySpecific installs once its
+// ServerConfig.withBufferCounting(true). A keep-alive HttpClient sends one request after the other, so the
+// peaks are what a single request pins.
+// Writes <outputDir>/buffer-pool-jetty-<version>.csv with, per pool, scenario and behavior:
+// - acquires, directAcquires, heapAcquires, acquiredBytes and releases per request, bytes by capacity
+// - peakOutstanding, peakOutstandingBytes: the most buffers, and bytes, acquired and not released at once
+// - settledOutstanding: still not released once the client stopped, leaked
+// - directMemoryGrowth: the direct memory of the JVM after the requests over before the server started, most of it
+//   the buffers the pool keeps
+// And <outputDir>/buffer-pool-histogram-jetty-<version>.csv with the acquires per power of two bytes of capacity,
+// upperBytes being the exclusive upper bound of the bucket.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.BufferPoolProfile [outputDir] [scenario...]
+public class BufferPoolProfile
+{
+    public static final String CSV_HEADER = "version,pool,scenario,behavior,requests,aborted,acquiresPerRequest,directAcquiresPerRequest," +
+        "heapAcquiresPerRequest,acquiredBytesPerRequest,releasesPerRequest,peakOutstanding,peakOutstandingBytes,settledOutstanding,directMemoryGrowth";
+    public static final String HISTOGRAM_CSV_HEADER = "version,pool,scenario,behavior,upperBytes,acquires";
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public BufferPoolProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific.withConfig(jettySpecific.getConfig().withBufferCounting(true));
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    // The CSV line, then the histogram lines
+    public List<String> run(CountingByteBufferPool.Type type, ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        JettySpecific jettySpecific = this.jettySpecific.withConfig(this.jettySpecific.getConfig().withBufferPoolType(type));
+        System.gc();
+        long directMemory = directMemoryUsed();
+        Server server = jettySpecific.newServer();
+        if (!(server.getConnectors()[0].getByteBufferPool() instanceof CountingByteBufferPool))
+            throw new IllegalStateException("No CountingByteBufferPool on " + server.getConnectors()[0]);
+        CountingByteBufferPool bufferPool = (CountingByteBufferPool)server.getConnectors()[0].getByteBufferPool();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+
+        HttpClient client = null;
+        try
+        {
+            server.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+            client = jettySpecific.newClient();
+            client.start();
+
+            for (int i = 0; i < warmupRequests; i++)
+            {
+                send(client, tossURI);
+            }
+            bufferPool.reset();
+            int aborted = 0;
+            for (int i = 0; i < measuredRequests; i++)
+            {
+                if (!send(client, tossURI))
+                    aborted++;
+            }
+            System.gc();
+            long directMemoryGrowth = directMemoryUsed() - directMemory;
+
+            client.stop();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (bufferPool.getOutstanding() > 0 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(10);
+            }
+
+            double requests = measuredRequests;
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%.2f,%.2f,%.2f,%.1f,%.2f,%d,%d,%d,%d",
+                ScenarioRunner.getJettyVersion(), type, scenario, behavior, measuredRequests, aborted,
+                bufferPool.getAcquires() / requests,
+                bufferPool.getDirectAcquires() / requests,
+                bufferPool.getHeapAcquires() / requests,
+                bufferPool.getAcquiredBytes() / requests,
+                bufferPool.getReleases() / requests,
+                bufferPool.getPeakOutstanding(),
+                bufferPool.getPeakOutstandingBytes(),
+                bufferPool.getOutstanding(),
+                directMemoryGrowth));
+            for (int bucket = 0; bucket < bufferPool.getBuckets(); bucket++)
+            {
+                if (bufferPool.getAcquires(bucket) > 0)
+                    lines.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d",
+                        ScenarioRunner.getJettyVersion(), type, scenario, behavior, 1L << bucket, bufferPool.getAcquires(bucket)));
+            }
+            return lines;
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    // False if the response was aborted
+    private static boolean send(HttpClient client, URI tossURI) throws Exception
+    {
+        try
+        {
+            client.newRequest(tossURI).send();
+            return true;
+        }
+        catch (ExecutionException x)
+        {
+            return false;
+        }
+    }
+
+    private static long directMemoryUsed()
+    {
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if ("direct".equals(bufferPool.getName()))
+                return bufferPool.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/buffer-pool");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        BufferPoolProfile profile = new BufferPoolProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 500), Integer.getInteger("cost.requests", 2_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("buffer-pool-jetty-" + version + ".csv");
+        Path histogramOutput = outputDir.resolve("buffer-pool-histogram-jetty-" + version + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+             PrintWriter histogramWriter = new PrintWriter(Files.newBufferedWriter(histogramOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            histogramWriter.println(HISTOGRAM_CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (CountingByteBufferPool.Type type : CountingByteBufferPool.Type.values())
+            {
+                for (ErrorScenario scenario : scenarios)
+                {
+                    for (Behavior behavior : Behavior.values())
+                    {
+                        List<String> lines = profile.run(type, scenario, behavior);
+                        System.out.println(lines.get(0));
+                        writer.println(lines.get(0));
+                        lines.subList(1, lines.size()).forEach(histogramWriter::println);
+                    }
+                    writer.flush();
+                    histogramWriter.flush();
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+        System.out.println("Wrote " + histogramOutput);
+    }
+}
@@ -0,0 +1,298 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.LocalClient;
+import org.eclipse.jetty.demo.common.RawHttpResponse;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Runs the scenarios across a grid of HttpConfiguration output buffer and aggregation sizes,
+// and writes <outputDir>/sweep-jetty-<version>.csv with, for every cell:
+// - throughput and p99 latency, over TCP (see ScenarioRunner), NaN when the buffer sizes changed the scenario outcome
+// - the commit point, ie: how many bytes the application had written when the response was committed
+// - the framing of the response: content-length, chunked (with the number of chunks), close or aborted
+// - the heap and direct memory the server retains per open keep-alive TCP connection after one request
+// The LARGE scenarios size their writes from the default OUTPUT_BUFFER_SIZE, so the workload stays the same in every cell.
+// java -Dsweep.bufferSizes=4096,8192,16384 -Dsweep.aggregationSizes=1024,2048,8192 -Dsweep.behaviors=PLAIN,GZIP_EXTERNAL \
+//   -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.BufferSizeSweep [outputDir] [scenario...]
+public class BufferSizeSweep
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,outputBufferSize,outputAggregationSize," +
+        "throughput,p99Micros,commitBytes,framing,chunks,bytesPerConnection";
+
+    private final JettySpecific jettySpecific;
+    private final ScenarioRunner runner;
+    private final int connections;
+
+    public BufferSizeSweep(JettySpecific jettySpecific, ScenarioRunner runner, int connections)
+    {
+        this.jettySpecific = jettySpecific;
+        this.runner = runner;
+        this.connections = connections;
+    }
+
+    public String run(ErrorScenario scenario, Behavior behavior, int outputBufferSize, int outputAggregationSize) throws Exception
+    {
+        ServerConfig config = this.jettySpecific.getConfig().withOutputBufferSize(outputBufferSize).withOutputAggregationSize(outputAggregationSize);
+        JettySpecific jettySpecific = this.jettySpecific.withConfig(config);
+
+        Server server = jettySpecific.newLocalServer();
+        LocalConnector connector = (LocalConnector)server.getConnectors()[0];
+        AtomicLong commitBytes = new AtomicLong(-1);
+        CountDownLatch complete = new CountDownLatch(1);
+        connector.addBean(new HttpChannel.Listener()
+        {
+            @Override
+            public void onResponseCommit(Request request)
+            {
+                commitBytes.compareAndSet(-1, request.getResponse().getHttpOutput().getWritten());
+            }
+
+            @Override
+            public void onComplete(Request request)
+            {
+                complete.countDown();
+            }
+        });
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        try
+        {
+            server.start();
+
+            RawHttpResponse response;
+            try (LocalClient client = new LocalClient(connector))
+            {
+                response = client.GET("/toss/");
+                // The client can read the response before the server is notified that it was committed,
+                // closing the connection right away would fail the commit
+                complete.await(5, TimeUnit.SECONDS);
+            }
+
+            // A different buffer size can change the outcome, eg: a large write that now fits in
+            // the buffer can be reset by sendError, instead of aborting the response
+            boolean expected = scenario.getOutcome() == ErrorScenario.Outcome.ABORTED ? !response.isComplete() : response.getStatus() == 301;
+            ScenarioResult result = expected ? runner.run(jettySpecific, scenario, behavior) : null;
+
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%.1f,%d,%s,%d,%d",
+                ScenarioRunner.getJettyVersion(), scenario, behavior, outputBufferSize, outputAggregationSize,
+                result == null ? Double.NaN : result.getThroughput(),
+                result == null ? Double.NaN : result.getP99Micros(),
+                commitBytes.get(), framing(response), response.getChunkCount(), bytesPerConnection(jettySpecific, scenario, behavior));
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    private static String framing(RawHttpResponse response)
+    {
+        if (!response.isComplete())
+            return "aborted";
+        if (response.getHeaders().containsKey(HttpHeader.TRANSFER_ENCODING.asString()))
+            return "chunked";
+        if (response.getHeaders().containsKey(HttpHeader.CONTENT_LENGTH.asString()))
+            return "content-length";
+        return "close";
+    }
+
+    // Heap and direct memory the server retains per open keep-alive connection, each one having served a request.
+    // Over the ServerConnector of newServer(), so that the SocketChannelEndPoint, its selector registration and the
+    // buffers of a real TCP connection are counted. The clients are blocking Sockets in this JVM: their own memory is
+    // measured first, with Sockets left in the backlog of a ServerSocket that never accepts them, and subtracted.
+    private long bytesPerConnection(JettySpecific jettySpecific, ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        long clientBytesPerConnection = clientBytesPerConnection();
+        Server server = jettySpecific.newServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        List<Socket> sockets = new ArrayList<>();
+        try
+        {
+            server.start();
+            URI serverURI = server.getURI();
+            long before = usedMemory();
+            for (int i = 0; i < connections; i++)
+            {
+                Socket socket = new Socket(serverURI.getHost(), serverURI.getPort());
+                sockets.add(socket);
+                GET(socket, serverURI);
+            }
+            return Math.max(0, usedMemory() - before - clientBytesPerConnection * connections) / connections;
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                socket.close();
+            }
+            LifeCycle.stop(server);
+        }
+    }
+
+    // The memory of one client Socket alone, connected but never accepted. The kernel caps the backlog, at
+    // net.core.somaxconn on Linux, and drops the connections past it: connect() times out, and the average
+    // is taken over the Sockets that did connect
+    private long clientBytesPerConnection() throws IOException
+    {
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket serverSocket = new ServerSocket(0, connections, InetAddress.getLoopbackAddress()))
+        {
+            InetSocketAddress address = new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+            long before = usedMemory();
+            for (int i = 0; i < connections; i++)
+            {
+                Socket socket = new Socket();
+                try
+                {
+                    socket.connect(address, 1000);
+                }
+                catch (SocketTimeoutException x)
+                {
+                    socket.close();
+                    break;
+                }
+                sockets.add(socket);
+                socket.getInputStream();
+                socket.getOutputStream();
+            }
+            return sockets.isEmpty() ? 0 : Math.max(0, usedMemory() - before) / sockets.size();
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    // Reads the whole response, or until the server closes the connection, eg: an aborted response
+    private static void GET(Socket socket, URI serverURI) throws IOException
+    {
+        socket.setSoTimeout(10_000);
+        OutputStream output = socket.getOutputStream();
+        output.write(("GET /toss/ HTTP/1.1\r\n" +
+            "Host: " + serverURI.getHost() + ":" + serverURI.getPort() + "\r\n" +
+            "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        output.flush();
+
+        InputStream input = socket.getInputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (true)
+        {
+            int read = input.read(buffer);
+            if (read < 0)
+                return;
+            bytes.write(buffer, 0, read);
+            if (RawHttpResponse.parse(ByteBuffer.wrap(bytes.toByteArray())).isComplete())
+                return;
+        }
+    }
+
+    private static long usedMemory()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if ("direct".equals(bufferPool.getName()))
+                used += bufferPool.getMemoryUsed();
+        }
+        return used;
+    }
+
+    private static int[] sizes(String property, String defaults)
+    {
+        return Arrays.stream(System.getProperty(property, defaults).split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/buffer-sweep");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        int[] bufferSizes = sizes("sweep.bufferSizes", "2048,4096,8192,16384,32768,65536");
+        int[] aggregationSizes = sizes("sweep.aggregationSizes", "512,2048,8192");
+        List<Behavior> behaviors = new ArrayList<>();
+        for (String behavior : System.getProperty("sweep.behaviors", Behavior.PLAIN.name()).split(","))
+        {
+            behaviors.add(Behavior.valueOf(behavior.trim()));
+        }
+
+        ScenarioRunner runner = new ScenarioRunner();
+        runner.setWarmupRequests(Integer.getInteger("cost.warmup", 500));
+        runner.setMeasuredRequests(Integer.getInteger("cost.requests", 2_000));
+        BufferSizeSweep sweep = new BufferSizeSweep(JettySpecific.load(ServerConfig.fromSystemProperties()), runner, Integer.getInteger("sweep.connections", 1_000));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("sweep-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : behaviors)
+                {
+                    for (int bufferSize : bufferSizes)
+                    {
+                        for (int aggregationSize : aggregationSizes)
+                        {
+                            // Aggregating more than fits in the output buffer is not a meaningful configuration
+                            if (aggregationSize > bufferSize)
+                                continue;
+                            String line = sweep.run(scenario, behavior, bufferSize, aggregationSize);
+                            System.out.println(line);
+                            writer.println(line);
+                            writer.flush();
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
@@ -0,0 +1,240 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// How many connections each scenario costs, with a keep-alive HttpClient sending one request after the other.
+// A ConnectionCounter on the ServerConnector and another on the HttpClient count the connections opened and
+// closed per request, so the close-after-error policy of the version shows as ~1 instead of ~0.
+// A request that had to open a connection is timed apart from the ones reusing a pooled connection, and its
+// connect time, from the send to the client onOpened(), is the handshake the churn costs.
+// Columns:
+// - serverOpened/Closed, clientOpened/Closed: connections per request, on each side
+// - connectionClose: responses with a Connection: close header, aborted responses have none
+// - reused/newConnection: requests sent on a pooled connection and on a new one, with their p50 latency
+// - connectP50/P99Micros: TCP connect time of the new connections
+// - churnMicrosPerRequest: total connect time over all the requests, what keep-alive would have saved
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.ConnectionChurnProfile [outputDir] [scenario...]
+public class ConnectionChurnProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,requests,throughput,p50Micros,p99Micros," +
+        "serverOpenedPerRequest,serverClosedPerRequest,clientOpenedPerRequest,clientClosedPerRequest,connectionClose," +
+        "reused,reusedP50Micros,newConnection,newConnectionP50Micros,connectP50Micros,connectP99Micros,churnMicrosPerRequest";
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public ConnectionChurnProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    public String run(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        // Unmanaged beans, so that they do not get reset by a restart
+        ConnectionCounter serverConnections = new ConnectionCounter();
+        server.getConnectors()[0].addBean(serverConnections, false);
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+
+        HttpClient client = null;
+        try
+        {
+            server.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+
+            client = newClient(null);
+            for (int i = 0; i < warmupRequests; i++)
+            {
+                send(client, tossURI, scenario);
+            }
+            client.stop();
+            awaitClosed(serverConnections);
+
+            ConnectionCounter clientConnections = new ConnectionCounter();
+            client = newClient(clientConnections);
+            serverConnections.reset();
+
+            long[] latencies = new long[measuredRequests];
+            long[] reusedLatencies = new long[measuredRequests];
+            long[] newConnectionLatencies = new long[measuredRequests];
+            long[] connectTimes = new long[measuredRequests];
+            int reused = 0;
+            int newConnections = 0;
+            int connectionClose = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < measuredRequests; i++)
+            {
+                long opened = clientConnections.getOpened();
+                long begin = System.nanoTime();
+                ContentResponse response = send(client, tossURI, scenario);
+                long latency = System.nanoTime() - begin;
+                latencies[i] = latency;
+                if (clientConnections.getOpened() == opened)
+                {
+                    reusedLatencies[reused++] = latency;
+                }
+                else
+                {
+                    connectTimes[newConnections] = clientConnections.getLastOpenedNanos() - begin;
+                    newConnectionLatencies[newConnections++] = latency;
+                }
+                if (response != null && response.getHeaders().contains(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString()))
+                    connectionClose++;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // The last closes are asynchronous, the pooled connection stays open
+            awaitSettled(serverConnections, clientConnections);
+            long serverOpened = serverConnections.getOpened();
+            long serverClosed = serverConnections.getClosed();
+            long clientOpened = clientConnections.getOpened();
+            long clientClosed = clientConnections.getClosed();
+
+            reusedLatencies = Arrays.copyOf(reusedLatencies, reused);
+            newConnectionLatencies = Arrays.copyOf(newConnectionLatencies, newConnections);
+            connectTimes = Arrays.copyOf(connectTimes, newConnections);
+            Arrays.sort(latencies);
+            Arrays.sort(reusedLatencies);
+            Arrays.sort(newConnectionLatencies);
+            Arrays.sort(connectTimes);
+
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.1f,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%d,%.1f,%d,%.1f,%.1f,%.1f,%.2f",
+                ScenarioRunner.getJettyVersion(), scenario, behavior, measuredRequests,
+                measuredRequests / (elapsed / (double)TimeUnit.SECONDS.toNanos(1)),
+                ScenarioRunner.percentile(latencies, 0.50) / 1000D,
+                ScenarioRunner.percentile(latencies, 0.99) / 1000D,
+                serverOpened / (double)measuredRequests,
+                serverClosed / (double)measuredRequests,
+                clientOpened / (double)measuredRequests,
+                clientClosed / (double)measuredRequests,
+                connectionClose,
+                reused,
+                ScenarioRunner.percentile(reusedLatencies, 0.50) / 1000D,
+                newConnections,
+                ScenarioRunner.percentile(newConnectionLatencies, 0.50) / 1000D,
+                ScenarioRunner.percentile(connectTimes, 0.50) / 1000D,
+                ScenarioRunner.percentile(connectTimes, 0.99) / 1000D,
+                Arrays.stream(connectTimes).sum() / 1000D / measuredRequests);
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    private HttpClient newClient(ConnectionCounter connections) throws Exception
+    {
+        HttpClient client = jettySpecific.newClient();
+        if (connections != null)
+            client.addBean(connections, false);
+        client.start();
+        return client;
+    }
+
+    // The response, or null if the scenario aborted it as expected
+    private static ContentResponse send(HttpClient client, URI tossURI, ErrorScenario scenario) throws Exception
+    {
+        if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+        {
+            try
+            {
+                client.newRequest(tossURI).method(HttpMethod.GET).send();
+            }
+            catch (ExecutionException expected)
+            {
+                return null;
+            }
+            throw new IllegalStateException("Expected " + scenario + " to abort the response");
+        }
+
+        ContentResponse response = client.GET(tossURI);
+        if (response.getStatus() != 301)
+            throw new IllegalStateException("Expected 301 from " + scenario + " but got " + response.getStatus());
+        return response;
+    }
+
+    private static void awaitClosed(ConnectionCounter connections) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connections.getOpen() > 0 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    // Waits until no connection got closed for 100ms
+    private static void awaitSettled(ConnectionCounter... counters) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long closed = -1;
+        while (System.nanoTime() < deadline)
+        {
+            long current = Arrays.stream(counters).mapToLong(ConnectionCounter::getClosed).sum();
+            if (current == closed)
+                return;
+            closed = current;
+            Thread.sleep(100);
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/connection-churn");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        ConnectionChurnProfile profile = new ConnectionChurnProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 1_000), Integer.getInteger("cost.requests", 5_000));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("connection-churn-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    String line = profile.run(scenario, behavior);
+                    System.out.println(line);
+                    writer.println(line);
+                }
+                writer.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
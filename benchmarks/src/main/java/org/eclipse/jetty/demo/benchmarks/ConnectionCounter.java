@@ -0,0 +1,55 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.Connection;
+
+// Counts the connections opened and closed, as a bean of a server Connector or of an HttpClient.
+// Both add their Connection.Listener beans to each new connection, in 9.4.8 as in 9.4.25+.
+public class ConnectionCounter implements Connection.Listener
+{
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private volatile long lastOpenedNanos;
+
+    @Override
+    public void onOpened(Connection connection)
+    {
+        lastOpenedNanos = System.nanoTime();
+        opened.incrementAndGet();
+    }
+
+    @Override
+    public void onClosed(Connection connection)
+    {
+        closed.incrementAndGet();
+    }
+
+    public long getOpened()
+    {
+        return opened.get();
+    }
+
+    public long getClosed()
+    {
+        return closed.get();
+    }
+
+    // Connections opened and not closed yet
+    public long getOpen()
+    {
+        return opened.get() - closed.get();
+    }
+
+    // System.nanoTime() of the last onOpened(), for a client: when the TCP connect completed
+    public long getLastOpenedNanos()
+    {
+        return lastOpenedNanos;
+    }
+
+    public void reset()
+    {
+        opened.set(0);
+        closed.set(0);
+    }
+}
@@ -0,0 +1,65 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+
+// Measures every ErrorScenario and Behavior against the JettySpecific on the classpath,
+// and writes the results to <outputDir>/jetty-<version>.csv for the CrossVersionReport.
+// Use -Dcost.transport=LOCAL to go through a LocalConnector instead of TCP.
+// Exits with 1 if a scenario is over its ErrorScenario.getServerAllocationBudget(), or its server allocations
+// are not measured (virtual threads), unless -Dcost.budgets=false.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.CostReport [outputDir]
+public class CostReport
+{
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/cost-report");
+        ScenarioRunner runner = new ScenarioRunner();
+        runner.setWarmupRequests(Integer.getInteger("cost.warmup", runner.getWarmupRequests()));
+        runner.setMeasuredRequests(Integer.getInteger("cost.requests", runner.getMeasuredRequests()));
+        runner.setTransport(Transport.valueOf(System.getProperty("cost.transport", runner.getTransport().name())));
+
+        boolean budgets = Boolean.parseBoolean(System.getProperty("cost.budgets", "true"));
+
+        JettySpecific jettySpecific = JettySpecific.load(ServerConfig.fromSystemProperties());
+        List<String> overBudget = new ArrayList<>();
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(ScenarioResult.CSV_HEADER);
+            for (ErrorScenario scenario : ErrorScenario.values())
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    ScenarioResult result = runner.run(jettySpecific, scenario, behavior);
+                    System.out.println(result);
+                    writer.println(result.toCsv());
+                    String violation = result.checkAllocationBudget();
+                    if (violation != null)
+                        overBudget.add(violation);
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+
+        if (!overBudget.isEmpty())
+        {
+            System.out.println("Over the allocation budget, or not measured:");
+            overBudget.forEach(violation -> System.out.println("  " + violation));
+            if (budgets)
+                System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+
+// Counts the Deflaters taken from and given back to the GzipHandler.
+// 9.4.8 keeps one Deflater per thread, 9.4.25+ use a DeflaterPool, getDeflater()/recycle() is common to both.
+public class CountingGzipHandler extends GzipHandler
+{
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong maxOutstanding = new AtomicLong();
+
+    @Override
+    public Deflater getDeflater(Request request, long contentLength)
+    {
+        Deflater deflater = super.getDeflater(request, contentLength);
+        if (deflater != null)
+        {
+            acquired.incrementAndGet();
+            maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+        }
+        return deflater;
+    }
+
+    @Override
+    public void recycle(Deflater deflater)
+    {
+        recycled.incrementAndGet();
+        outstanding.decrementAndGet();
+        super.recycle(deflater);
+    }
+
+    public long getAcquired()
+    {
+        return acquired.get();
+    }
+
+    public long getRecycled()
+    {
+        return recycled.get();
+    }
+
+    public long getMaxOutstanding()
+    {
+        return maxOutstanding.get();
+    }
+
+    public void reset()
+    {
+        acquired.set(0);
+        recycled.set(0);
+        maxOutstanding.set(outstanding.get());
+    }
+}
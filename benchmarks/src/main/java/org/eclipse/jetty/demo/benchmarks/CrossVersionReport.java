@@ -0,0 +1,196 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+// Merges the CSV files written by CostReport into one side-by-side table.
+// The first file is the baseline, any other version that is worse than the baseline
+// by more than the threshold (percent) is flagged, and the exit status is 1.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.CrossVersionReport [--threshold=10] baseline.csv other.csv...
+public class CrossVersionReport
+{
+    public enum Metric
+    {
+        THROUGHPUT("req/s", true, ScenarioResult::getThroughput),
+        P50("p50 us", false, ScenarioResult::getP50Micros),
+        P99("p99 us", false, ScenarioResult::getP99Micros),
+        SERVER_ALLOCATED("server alloc B/req", false, result -> result.isServerAllocationMeasured() ? result.getServerAllocatedBytesPerRequest() : Double.NaN),
+        CLIENT_ALLOCATED("client alloc B/req", false, ScenarioResult::getClientAllocatedBytesPerRequest),
+        WIRE("wire B/req", false, ScenarioResult::getWireBytesPerRequest);
+
+        private final String label;
+        private final boolean higherIsBetter;
+        private final ToDoubleFunction<ScenarioResult> value;
+
+        Metric(String label, boolean higherIsBetter, ToDoubleFunction<ScenarioResult> value)
+        {
+            this.label = label;
+            this.higherIsBetter = higherIsBetter;
+            this.value = value;
+        }
+
+        public double of(ScenarioResult result)
+        {
+            return value.applyAsDouble(result);
+        }
+
+        // Percentage by which the result is worse than the baseline, negative when better,
+        // infinite when the baseline is 0 and the result is not, e.g. a scenario that starts to allocate,
+        // NaN when either was not measured
+        public double regression(ScenarioResult baseline, ScenarioResult result)
+        {
+            double base = of(baseline);
+            double value = of(result);
+            if (base == value)
+                return 0;
+            double change = base == 0 ? Math.copySign(Double.POSITIVE_INFINITY, value) : (value - base) * 100 / base;
+            return higherIsBetter ? -change : change;
+        }
+    }
+
+    private static final int KEY_WIDTH = 48;
+    private static final int CELL_WIDTH = 19;
+
+    private final List<String> versions = new ArrayList<>();
+    private final Map<String, Map<String, ScenarioResult>> results = new LinkedHashMap<>();
+    private final double threshold;
+
+    public CrossVersionReport(double threshold)
+    {
+        this.threshold = threshold;
+    }
+
+    public void add(ScenarioResult result)
+    {
+        if (!versions.contains(result.getVersion()))
+            versions.add(result.getVersion());
+        results.computeIfAbsent(key(result.getScenario(), result.getBehavior()), k -> new LinkedHashMap<>())
+            .put(result.getVersion(), result);
+    }
+
+    // Returns the regressions found, one line each
+    public List<String> print(PrintStream out)
+    {
+        List<String> regressions = new ArrayList<>();
+        String baseline = versions.isEmpty() ? null : versions.get(0);
+
+        StringBuilder header = new StringBuilder(pad("", KEY_WIDTH));
+        StringBuilder subHeader = new StringBuilder(pad("scenario/behavior", KEY_WIDTH));
+        for (Metric metric : Metric.values())
+        {
+            header.append(" | ").append(pad(metric.label, CELL_WIDTH * versions.size()));
+            subHeader.append(" | ");
+            for (String version : versions)
+            {
+                subHeader.append(pad(version, CELL_WIDTH));
+            }
+        }
+        out.println(header);
+        out.println(subHeader);
+
+        for (Map.Entry<String, Map<String, ScenarioResult>> entry : results.entrySet())
+        {
+            Map<String, ScenarioResult> byVersion = entry.getValue();
+            ScenarioResult base = byVersion.get(baseline);
+            StringBuilder line = new StringBuilder(pad(entry.getKey(), KEY_WIDTH));
+            for (Metric metric : Metric.values())
+            {
+                line.append(" | ");
+                for (String version : versions)
+                {
+                    ScenarioResult result = byVersion.get(version);
+                    if (result == null)
+                    {
+                        line.append(pad("-", CELL_WIDTH));
+                        continue;
+                    }
+                    double value = metric.of(result);
+                    String cell = Double.isNaN(value) ? "n/a" : String.format(Locale.ROOT, "%.1f", value);
+                    if (base != null && result != base)
+                    {
+                        double regression = metric.regression(base, result);
+                        if (regression > threshold)
+                        {
+                            cell += " !";
+                            String by = Double.isInfinite(regression) ? "" : String.format(Locale.ROOT, " by %.1f%%", regression);
+                            regressions.add(String.format(Locale.ROOT, "%s %s %s worse%s (%.1f -> %.1f)",
+                                version, entry.getKey(), metric.label, by, metric.of(base), metric.of(result)));
+                        }
+                    }
+                    line.append(pad(cell, CELL_WIDTH));
+                }
+            }
+            out.println(line);
+        }
+
+        out.println();
+        if (regressions.isEmpty())
+        {
+            out.printf(Locale.ROOT, "No regressions above %.1f%% against %s%n", threshold, baseline);
+        }
+        else
+        {
+            out.printf(Locale.ROOT, "Regressions above %.1f%% against %s:%n", threshold, baseline);
+            regressions.forEach(regression -> out.println("  " + regression));
+        }
+        return regressions;
+    }
+
+    private static String key(ErrorScenario scenario, Behavior behavior)
+    {
+        return scenario + "/" + behavior;
+    }
+
+    private static String pad(String text, int width)
+    {
+        StringBuilder builder = new StringBuilder(text);
+        while (builder.length() < width)
+        {
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        double threshold = 10;
+        List<String> files = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith("--threshold="))
+                threshold = Double.parseDouble(arg.substring("--threshold=".length()));
+            else
+                files.add(arg);
+        }
+        if (files.isEmpty())
+        {
+            System.err.println("Usage: CrossVersionReport [--threshold=<percent>] <baseline.csv> <other.csv>...");
+            System.exit(2);
+        }
+
+        CrossVersionReport report = new CrossVersionReport(threshold);
+        for (String file : files)
+        {
+            for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8))
+            {
+                if (line.isEmpty() || line.equals(ScenarioResult.CSV_HEADER))
+                    continue;
+                report.add(ScenarioResult.fromCsv(line));
+            }
+        }
+
+        List<String> regressions = report.print(System.out);
+        System.exit(regressions.isEmpty() ? 0 : 1);
+    }
+}
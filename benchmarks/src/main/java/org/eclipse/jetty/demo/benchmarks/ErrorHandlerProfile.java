@@ -0,0 +1,208 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.CachingErrorPageErrorHandler;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.LocalClient;
+import org.eclipse.jetty.demo.common.RawHttpResponse;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ErrorHandler;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Compares the ErrorHandlers that can produce the error pages, for each scenario and Behavior:
+// - DISPATCH, the ErrorPageErrorHandler dispatching to the error servlet on every sendError
+// - CACHED, the CachingErrorPageErrorHandler serving the body it captured from the first dispatch
+// - CACHED_GZIP, the same with setPrecompress(true), only run for the GZIP behaviors. It only precompresses
+//   what GzipHandler would compress, never a 301, so it measures the cost of the eligibility checks
+// - PRE_ENCODED, the PreEncodedErrorHandler writing the body from bytes encoded up front, without a dispatch
+// Requests go through a LocalConnector, which handles most of them in the sending thread, so the CPU time
+// and allocations are those of the server thread pool plus the sending thread, the LocalClient included.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.ErrorHandlerProfile [outputDir] [scenario...]
+public class ErrorHandlerProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,errorHandler,requests," +
+        "cpuMicrosPerRequest,p50Micros,p99Micros,allocatedBytesPerRequest,contentEncoding,wireBytes,hitRatio";
+
+    public enum Variant
+    {
+        DISPATCH
+        {
+            @Override
+            public ErrorHandler newErrorHandler(ErrorScenario scenario)
+            {
+                return new ErrorPageErrorHandler();
+            }
+        },
+        CACHED
+        {
+            @Override
+            public ErrorHandler newErrorHandler(ErrorScenario scenario)
+            {
+                return new CachingErrorPageErrorHandler();
+            }
+        },
+        CACHED_GZIP
+        {
+            @Override
+            public ErrorHandler newErrorHandler(ErrorScenario scenario)
+            {
+                CachingErrorPageErrorHandler errorHandler = new CachingErrorPageErrorHandler();
+                errorHandler.setPrecompress(true);
+                return errorHandler;
+            }
+
+            @Override
+            public boolean supports(Behavior behavior)
+            {
+                return behavior != Behavior.PLAIN;
+            }
+        },
+        PRE_ENCODED
+        {
+            @Override
+            public ErrorHandler newErrorHandler(ErrorScenario scenario)
+            {
+                return scenario.newPreEncodedErrorHandler();
+            }
+        };
+
+        public abstract ErrorHandler newErrorHandler(ErrorScenario scenario);
+
+        public boolean supports(Behavior behavior)
+        {
+            return true;
+        }
+    }
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public ErrorHandlerProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    public String run(ErrorScenario scenario, Behavior behavior, Variant variant) throws Exception
+    {
+        ErrorHandler errorHandler = variant.newErrorHandler(scenario);
+        Server server = jettySpecific.newLocalServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior, AbstractCommonTest.newGzipHandler(), errorHandler));
+        try
+        {
+            server.start();
+            List<String> serverThreadPools = ScenarioRunner.getThreadPoolNames(server);
+
+            try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+            {
+                for (int i = 0; i < warmupRequests; i++)
+                {
+                    client.GET("/toss/");
+                }
+                if (errorHandler instanceof CachingErrorPageErrorHandler)
+                    ((CachingErrorPageErrorHandler)errorHandler).clear();
+
+                long[] latencies = new long[measuredRequests];
+                RawHttpResponse response = null;
+                long cpuBefore = ScenarioRunner.getCpuTime(serverThreadPools, true);
+                long allocatedBefore = ScenarioRunner.getAllocatedBytes(serverThreadPools, true);
+                for (int i = 0; i < measuredRequests; i++)
+                {
+                    long begin = System.nanoTime();
+                    response = client.GET("/toss/");
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                long allocated = ScenarioRunner.getAllocatedBytes(serverThreadPools, true) - allocatedBefore;
+                long cpu = ScenarioRunner.getCpuTime(serverThreadPools, true) - cpuBefore;
+                Arrays.sort(latencies);
+
+                if (response.getStatus() != 301 || !response.getContentAsString().contains("Not here, go there: "))
+                    throw new IllegalStateException("Expected the error page from " + scenario + " with " + variant + " but got " + response);
+
+                String contentEncoding = response.getHeaders().get(HttpHeader.CONTENT_ENCODING);
+                double hitRatio = errorHandler instanceof CachingErrorPageErrorHandler
+                    ? ((CachingErrorPageErrorHandler)errorHandler).getHits() / (double)measuredRequests
+                    : 0D;
+                return String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.1f,%.1f,%.1f,%d,%s,%d,%.2f",
+                    ScenarioRunner.getJettyVersion(), scenario, behavior, variant, measuredRequests,
+                    cpu / 1000D / measuredRequests,
+                    ScenarioRunner.percentile(latencies, 0.50) / 1000D,
+                    ScenarioRunner.percentile(latencies, 0.99) / 1000D,
+                    allocated / measuredRequests,
+                    contentEncoding == null ? "identity" : contentEncoding,
+                    response.getContentBytes().length,
+                    hitRatio);
+            }
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/error-handlers");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+        {
+            for (ErrorScenario scenario : ErrorScenario.values())
+            {
+                if (scenario.getOutcome() == ErrorScenario.Outcome.ERROR_PAGE)
+                    scenarios.add(scenario);
+            }
+        }
+
+        ErrorHandlerProfile profile = new ErrorHandlerProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 1_000), Integer.getInteger("cost.requests", 5_000));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("error-handlers-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                if (scenario.getOutcome() != ErrorScenario.Outcome.ERROR_PAGE)
+                    throw new IllegalArgumentException("Scenario " + scenario + " does not produce an error page");
+
+                for (Behavior behavior : Behavior.values())
+                {
+                    for (Variant variant : Variant.values())
+                    {
+                        if (!variant.supports(behavior))
+                            continue;
+                        String line = profile.run(scenario, behavior, variant);
+                        System.out.println(line);
+                        writer.println(line);
+                    }
+                }
+                writer.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
@@ -0,0 +1,84 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures resp.sendError(301) followed by the ErrorPageErrorHandler dispatch to /error/
+// java -jar benchmarks/target/benchmarks-jetty-<version>.jar ErrorPathBenchmark [-p transport=LOCAL]
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark
+{
+    @Param({
+        "SEND_ERROR",
+        "SEND_ERROR_LARGE",
+        "GET_OUTPUT_STREAM_SEND_ERROR",
+        "GET_OUTPUT_STREAM_SEND_ERROR_LARGE",
+        "SEND_ERROR_WRITE",
+        "WRITE_SEND_ERROR"
+    })
+    public ErrorScenario scenario;
+
+    @Param({"PLAIN", "GZIP_INTERNAL", "GZIP_EXTERNAL"})
+    public Behavior behavior;
+
+    @Param({"TCP"})
+    public Transport transport;
+
+    private Server server;
+    private ScenarioClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        if (scenario.getOutcome() != ErrorScenario.Outcome.ERROR_PAGE)
+            throw new IllegalArgumentException("Scenario " + scenario + " does not produce an error page");
+
+        JettySpecific jettySpecific = JettySpecific.load(ServerConfig.fromSystemProperties());
+
+        server = transport.newServer(jettySpecific);
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        server.start();
+
+        client = transport.newClient(jettySpecific, server);
+        client.start();
+        client.execute(scenario);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception
+    {
+        if (client != null)
+            client.stop();
+        LifeCycle.stop(server);
+    }
+
+    @Benchmark
+    public void sendErrorDispatch() throws Exception
+    {
+        client.execute(scenario);
+    }
+}
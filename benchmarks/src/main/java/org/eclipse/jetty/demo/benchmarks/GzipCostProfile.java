@@ -0,0 +1,217 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.LocalClient;
+import org.eclipse.jetty.demo.common.RawHttpResponse;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// What the GzipHandler costs on the error path, for each placement, compression level and minGzipSize.
+// Every cell is measured twice through a LocalConnector: once for the 301 error page at /toss/, and once
+// for a control servlet at /ok/ that serves the same body and content type with a 200.
+// GzipHandler does not compress 3xx responses, so for the error pages the cost is the handler alone,
+// while the control shows what compressing a body of that size would cost and save.
+// Columns: CPU and latency per request, Deflaters acquired per request and the most in use at once,
+// and the compression ratio (wire body / decoded body).
+// The LocalConnector handles most requests in the thread that sends them, so the CPU time is that of the
+// server thread pool plus the sending thread, compare it with the PLAIN rows rather than read it as is.
+// java -Dgzip.levels=1,6,9 -Dgzip.minSizes=10,256,1024,16384 \
+//   -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.GzipCostProfile [outputDir] [scenario...]
+public class GzipCostProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,path,status,level,minGzipSize,requests," +
+        "cpuMicrosPerRequest,p50Micros,p99Micros,deflatersPerRequest,maxDeflatersInUse,contentEncoding,wireBytes,decodedBytes,ratio";
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public GzipCostProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    // Serves a fixed body with a 200
+    public static class ControlServlet extends HttpServlet
+    {
+        private final byte[] body;
+        private final String contentType;
+
+        public ControlServlet(byte[] body, String contentType)
+        {
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException
+        {
+            if (contentType != null)
+                resp.setContentType(contentType);
+            resp.getOutputStream().write(body);
+        }
+    }
+
+    // The decoded error page of the scenario, served by a PLAIN server
+    private RawHttpResponse errorPage(ErrorScenario scenario) throws Exception
+    {
+        Server server = jettySpecific.newLocalServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), Behavior.PLAIN));
+        try
+        {
+            server.start();
+            try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+            {
+                return client.GET("/toss/");
+            }
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    public List<String> run(ErrorScenario scenario, Behavior behavior, int level, int minGzipSize) throws Exception
+    {
+        RawHttpResponse errorPage = errorPage(scenario);
+
+        CountingGzipHandler gzipHandler = new CountingGzipHandler();
+        gzipHandler.setCompressionLevel(level);
+        gzipHandler.setMinGzipSize(minGzipSize);
+        Handler handler = scenario.newHandler(jettySpecific.getConfig(), behavior, gzipHandler);
+        ServletContextHandler contextHandler = (ServletContextHandler)(handler == gzipHandler ? gzipHandler.getHandler() : handler);
+        contextHandler.addServlet(new ServletHolder(new ControlServlet(errorPage.getContentBytes(), errorPage.getHeaders().get(HttpHeader.CONTENT_TYPE))), "/ok/");
+
+        Server server = jettySpecific.newLocalServer();
+        server.setHandler(handler);
+        try
+        {
+            server.start();
+            List<String> serverThreadPools = ScenarioRunner.getThreadPoolNames(server);
+
+            List<String> lines = new ArrayList<>();
+            for (String path : Arrays.asList("/toss/", "/ok/"))
+            {
+                try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+                {
+                    for (int i = 0; i < warmupRequests; i++)
+                    {
+                        client.GET(path);
+                    }
+                    gzipHandler.reset();
+
+                    long[] latencies = new long[measuredRequests];
+                    RawHttpResponse response = null;
+                    long cpuBefore = ScenarioRunner.getCpuTime(serverThreadPools, true);
+                    for (int i = 0; i < measuredRequests; i++)
+                    {
+                        long begin = System.nanoTime();
+                        response = client.GET(path);
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                    long cpu = ScenarioRunner.getCpuTime(serverThreadPools, true) - cpuBefore;
+                    Arrays.sort(latencies);
+
+                    int wireBytes = response.getContentBytes().length;
+                    int decodedBytes = response.getContentAsString().getBytes(StandardCharsets.UTF_8).length;
+                    String contentEncoding = response.getHeaders().get(HttpHeader.CONTENT_ENCODING);
+                    lines.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.2f,%d,%s,%d,%d,%.3f",
+                        ScenarioRunner.getJettyVersion(), scenario, behavior, path, response.getStatus(), level, minGzipSize, measuredRequests,
+                        cpu / 1000D / measuredRequests,
+                        ScenarioRunner.percentile(latencies, 0.50) / 1000D,
+                        ScenarioRunner.percentile(latencies, 0.99) / 1000D,
+                        gzipHandler.getAcquired() / (double)measuredRequests,
+                        gzipHandler.getMaxOutstanding(),
+                        contentEncoding == null ? "identity" : contentEncoding,
+                        wireBytes, decodedBytes,
+                        decodedBytes == 0 ? 1D : wireBytes / (double)decodedBytes));
+                }
+            }
+            return lines;
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    private static int[] values(String property, String defaults)
+    {
+        return Arrays.stream(System.getProperty(property, defaults).split(",")).mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/gzip-cost");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        // A small and a large error page
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.SEND_ERROR, ErrorScenario.SEND_ERROR_LARGE));
+
+        int[] levels = values("gzip.levels", "1,6,9");
+        int[] minSizes = values("gzip.minSizes", "10,256,1024,16384");
+        GzipCostProfile profile = new GzipCostProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 1_000), Integer.getInteger("cost.requests", 5_000));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("gzip-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                if (scenario.getOutcome() != ErrorScenario.Outcome.ERROR_PAGE)
+                    throw new IllegalArgumentException("Scenario " + scenario + " does not produce an error page");
+
+                // The level and minGzipSize do not matter without a GzipHandler, PLAIN is the baseline
+                List<String> lines = new ArrayList<>(profile.run(scenario, Behavior.PLAIN, -1, 0));
+                for (Behavior behavior : Arrays.asList(Behavior.GZIP_INTERNAL, Behavior.GZIP_EXTERNAL))
+                {
+                    for (int level : levels)
+                    {
+                        for (int minSize : minSizes)
+                        {
+                            lines.addAll(profile.run(scenario, behavior, level, minSize));
+                        }
+                    }
+                }
+                for (String line : lines)
+                {
+                    System.out.println(line);
+                    writer.println(line);
+                }
+                writer.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
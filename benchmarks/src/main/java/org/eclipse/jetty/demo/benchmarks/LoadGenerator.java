@@ -0,0 +1,176 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Open loop load: requests are sent to /toss/ at a fixed rate with the async HttpClient API,
+// whether or not the previous responses have arrived. The latency of each request is measured
+// from the time it was scheduled to be sent, not from when it was actually sent, so that a stalled
+// server or sender shows up in the latencies instead of just slowing down the rate (coordinated omission).
+public class LoadGenerator
+{
+    public static class Stats
+    {
+        private final long sent;
+        private final long unexpected;
+        private final double achievedRate;
+
+        public Stats(long sent, long unexpected, double achievedRate)
+        {
+            this.sent = sent;
+            this.unexpected = unexpected;
+            this.achievedRate = achievedRate;
+        }
+
+        public static Stats fromCsv(String line)
+        {
+            String[] fields = line.split(",");
+            return new Stats(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Double.parseDouble(fields[2]));
+        }
+
+        public String toCsv()
+        {
+            return String.format(Locale.ROOT, "%d,%d,%.1f", sent, unexpected, achievedRate);
+        }
+
+        public long getSent()
+        {
+            return sent;
+        }
+
+        // Responses that did not match the ErrorScenario.Outcome, including the requests that timed out
+        public long getUnexpected()
+        {
+            return unexpected;
+        }
+
+        // The rate at which requests were actually sent, lower than the target rate if the sender fell behind
+        public double getAchievedRate()
+        {
+            return achievedRate;
+        }
+    }
+
+    private int rate = 1_000;
+    private int warmupSeconds = 5;
+    private int durationSeconds = 20;
+    private long timeoutSeconds = 30;
+
+    public int getRate()
+    {
+        return rate;
+    }
+
+    // requests per second
+    public void setRate(int rate)
+    {
+        this.rate = rate;
+    }
+
+    public int getWarmupSeconds()
+    {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds)
+    {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getDurationSeconds()
+    {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds)
+    {
+        this.durationSeconds = durationSeconds;
+    }
+
+    // Records the latency in nanoseconds of every measured request, from any thread
+    public Stats run(JettySpecific jettySpecific, ErrorScenario scenario, Behavior behavior, LongConsumer latencies) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        HttpClient client = jettySpecific.newClient();
+        // Open loop, the queue must absorb whatever the server does not keep up with
+        client.setMaxRequestsQueuedPerDestination(Math.max(1024, rate * 10));
+        try
+        {
+            server.start();
+            client.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+
+            send(client, tossURI, scenario, warmupSeconds, nanos -> {});
+            return send(client, tossURI, scenario, durationSeconds, latencies);
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    private Stats send(HttpClient client, URI tossURI, ErrorScenario scenario, int seconds, LongConsumer latencies) throws InterruptedException
+    {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = (long)rate * seconds;
+        AtomicLong completed = new AtomicLong();
+        AtomicLong unexpected = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++)
+        {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+
+            client.newRequest(tossURI)
+                .timeout(timeoutSeconds, TimeUnit.SECONDS)
+                .send(result ->
+                {
+                    latencies.accept(System.nanoTime() - intended);
+                    boolean aborted = result.isFailed();
+                    boolean expected = scenario.getOutcome() == ErrorScenario.Outcome.ABORTED
+                        ? aborted
+                        : !aborted && result.getResponse().getStatus() == 301;
+                    if (!expected)
+                        unexpected.incrementAndGet();
+                    completed.incrementAndGet();
+                });
+        }
+        double achievedRate = requests / ((System.nanoTime() - start) / (double)TimeUnit.SECONDS.toNanos(1));
+
+        // The requests still outstanding complete, at the latest, when they time out
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds + 5);
+        while (completed.get() < requests && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        return new Stats(requests, unexpected.get() + requests - completed.get(), achievedRate);
+    }
+
+    // Called reflectively by LoadReport from inside an isolated class loader,
+    // so only JDK types cross the class loader boundary
+    public static String runToCsv(String scenario, String behavior, int rate, int warmupSeconds, int durationSeconds, LongConsumer latencies) throws Exception
+    {
+        LoadGenerator generator = new LoadGenerator();
+        generator.setRate(rate);
+        generator.setWarmupSeconds(warmupSeconds);
+        generator.setDurationSeconds(durationSeconds);
+        return generator.run(JettySpecific.load(ServerConfig.fromSystemProperties()), ErrorScenario.valueOf(scenario), Behavior.valueOf(behavior), latencies).toCsv();
+    }
+}
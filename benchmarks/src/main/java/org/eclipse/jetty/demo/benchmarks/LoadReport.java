@@ -0,0 +1,151 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+// Runs the open loop LoadGenerator against every built version, one version at a time so that
+// they do not compete for the CPU, and prints the latency percentiles per Behavior and per version.
+// Needs the modules built first (mvn test-compile), then from the project root:
+// java -Dload.rate=2000 -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.LoadReport [scenario...]
+public class LoadReport
+{
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final int KEY_WIDTH = 48;
+    private static final int CELL_WIDTH = 12;
+
+    // scenario/behavior -> version -> latencies in nanoseconds
+    private final Map<String, Map<String, Histogram>> histograms = new LinkedHashMap<>();
+    private final Map<String, Map<String, LoadGenerator.Stats>> stats = new LinkedHashMap<>();
+    private final List<String> versions = new ArrayList<>();
+
+    public void add(String version, ErrorScenario scenario, Behavior behavior, Histogram histogram, LoadGenerator.Stats stats)
+    {
+        if (!versions.contains(version))
+            versions.add(version);
+        String key = scenario + "/" + behavior;
+        histograms.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(version, histogram);
+        this.stats.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(version, stats);
+    }
+
+    public void print(PrintStream out)
+    {
+        StringBuilder header = new StringBuilder(pad("scenario/behavior", KEY_WIDTH)).append(pad("version", 20));
+        for (double percentile : PERCENTILES)
+        {
+            header.append(pad("p" + format(percentile) + " us", CELL_WIDTH));
+        }
+        header.append(pad("max us", CELL_WIDTH)).append(pad("req/s", CELL_WIDTH)).append("unexpected");
+        out.println(header);
+
+        for (Map.Entry<String, Map<String, Histogram>> entry : histograms.entrySet())
+        {
+            for (String version : versions)
+            {
+                Histogram histogram = entry.getValue().get(version);
+                if (histogram == null)
+                    continue;
+                LoadGenerator.Stats runStats = stats.get(entry.getKey()).get(version);
+                StringBuilder line = new StringBuilder(pad(entry.getKey(), KEY_WIDTH)).append(pad(version, 20));
+                for (double percentile : PERCENTILES)
+                {
+                    line.append(pad(micros(histogram.getValueAtPercentile(percentile)), CELL_WIDTH));
+                }
+                line.append(pad(micros(histogram.getMaxValue()), CELL_WIDTH))
+                    .append(pad(String.format(Locale.ROOT, "%.0f", runStats.getAchievedRate()), CELL_WIDTH))
+                    .append(runStats.getUnexpected());
+                out.println(line);
+            }
+        }
+    }
+
+    private static String micros(long nanos)
+    {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000D);
+    }
+
+    private static String format(double percentile)
+    {
+        return percentile == (long)percentile ? String.valueOf((long)percentile) : String.valueOf(percentile);
+    }
+
+    private static String pad(String text, int width)
+    {
+        StringBuilder builder = new StringBuilder(text);
+        while (builder.length() < width)
+        {
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (String arg : args)
+        {
+            scenarios.add(ErrorScenario.valueOf(arg));
+        }
+        if (scenarios.isEmpty())
+            scenarios.add(ErrorScenario.SEND_ERROR);
+
+        Path root = Paths.get(System.getProperty("multiversion.root", ".")).toAbsolutePath().normalize();
+        int rate = Integer.getInteger("load.rate", 1_000);
+        int warmupSeconds = Integer.getInteger("load.warmup", 5);
+        int durationSeconds = Integer.getInteger("load.duration", 20);
+
+        List<MultiVersionRunner.IsolatedVersion> versions = new ArrayList<>();
+        for (Path module : MultiVersionRunner.findModules(root))
+        {
+            versions.add(new MultiVersionRunner.IsolatedVersion(root, module));
+        }
+        if (versions.isEmpty())
+        {
+            System.err.println("No built jetty-*-testing modules found under " + root + ", run mvn test-compile first");
+            System.exit(2);
+        }
+
+        LoadReport report = new LoadReport();
+        try
+        {
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    for (MultiVersionRunner.IsolatedVersion version : versions)
+                    {
+                        Recorder recorder = new Recorder(3);
+                        LongConsumer latencies = recorder::recordValue;
+                        String csv = (String)version.call(LoadGenerator.class, "runToCsv",
+                            new Class<?>[]{String.class, String.class, int.class, int.class, int.class, LongConsumer.class},
+                            scenario.name(), behavior.name(), rate, warmupSeconds, durationSeconds, latencies);
+                        String jettyVersion = (String)version.call(ScenarioRunner.class, "getJettyVersion", new Class<?>[0]);
+                        report.add(jettyVersion, scenario, behavior, recorder.getIntervalHistogram(), LoadGenerator.Stats.fromCsv(csv));
+                        System.out.printf(Locale.ROOT, "%s %s/%s at %d req/s: %s%n", jettyVersion, scenario, behavior, rate, csv);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            for (MultiVersionRunner.IsolatedVersion version : versions)
+            {
+                version.close();
+            }
+        }
+
+        System.out.println();
+        report.print(System.out);
+    }
+}
@@ -0,0 +1,206 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+// Loads every jetty-*-testing module into its own class loader, in this one JVM,
+// and runs each scenario against all the versions at the same time.
+// Needs the modules built first (mvn test-compile), then from the project root:
+// Exits with 1 on regressions, or on allocations over the scenario budgets or not measured (virtual threads)
+// unless -Dcost.budgets=false.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.MultiVersionRunner [--threshold=10] [--serial] [scenario...]
+public class MultiVersionRunner
+{
+    public static class IsolatedVersion implements Closeable
+    {
+        private final String module;
+        private final URLClassLoader classLoader;
+
+        public IsolatedVersion(Path root, Path module) throws Exception
+        {
+            this.module = module.getFileName().toString();
+
+            List<URL> urls = new ArrayList<>();
+            urls.add(module.resolve("target/test-classes").toUri().toURL());
+            urls.add(root.resolve("benchmarks/target/classes").toUri().toURL());
+            String classpath = new String(Files.readAllBytes(module.resolve("target/runtime-classpath.txt")), StandardCharsets.UTF_8).trim();
+            for (String entry : classpath.split(File.pathSeparator))
+            {
+                urls.add(Paths.get(entry).toUri().toURL());
+            }
+
+            // Parent is the platform (or extension) class loader, so nothing from the Jetty version
+            // this class was launched with can leak into the isolated versions
+            this.classLoader = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        public String getModule()
+        {
+            return module;
+        }
+
+        public ScenarioResult run(ErrorScenario scenario, Behavior behavior, Transport transport, int warmupRequests, int measuredRequests) throws Exception
+        {
+            String csv = (String)call(ScenarioRunner.class, "runToCsv",
+                new Class<?>[]{String.class, String.class, String.class, int.class, int.class},
+                scenario.name(), behavior.name(), transport.name(), warmupRequests, measuredRequests);
+            return ScenarioResult.fromCsv(csv);
+        }
+
+        // Calls the static method of this version's copy of the given class.
+        // Only JDK types may be used for the parameters and the return value.
+        public Object call(Class<?> type, String methodName, Class<?>[] parameterTypes, Object... args) throws Exception
+        {
+            Method method = classLoader.loadClass(type.getName()).getMethod(methodName, parameterTypes);
+            Thread thread = Thread.currentThread();
+            ClassLoader contextClassLoader = thread.getContextClassLoader();
+            // JettySpecific.load() uses the ServiceLoader, which looks at the context class loader
+            thread.setContextClassLoader(classLoader);
+            try
+            {
+                return method.invoke(null, args);
+            }
+            catch (InvocationTargetException x)
+            {
+                Throwable cause = x.getCause();
+                throw cause instanceof Exception ? (Exception)cause : new RuntimeException(cause);
+            }
+            finally
+            {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            classLoader.close();
+        }
+    }
+
+    public static List<Path> findModules(Path root) throws IOException
+    {
+        List<Path> modules = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, "jetty-*-testing"))
+        {
+            for (Path module : stream)
+            {
+                if (Files.exists(module.resolve("target/runtime-classpath.txt")) && Files.isDirectory(module.resolve("target/test-classes")))
+                    modules.add(module);
+            }
+        }
+        modules.sort(Comparator.comparing(MultiVersionRunner::versionOf));
+        return modules;
+    }
+
+    // jetty-9.4.25-testing -> 009004025, so that 9.4.8 sorts before 9.4.25
+    private static String versionOf(Path module)
+    {
+        String name = module.getFileName().toString();
+        StringBuilder version = new StringBuilder();
+        for (String part : name.substring("jetty-".length(), name.length() - "-testing".length()).split("\\."))
+        {
+            version.append(String.format("%03d", Integer.parseInt(part)));
+        }
+        return version.toString();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        double threshold = 10;
+        boolean serial = false;
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith("--threshold="))
+                threshold = Double.parseDouble(arg.substring("--threshold=".length()));
+            else if (arg.equals("--serial"))
+                serial = true;
+            else
+                scenarios.add(ErrorScenario.valueOf(arg));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        Path root = Paths.get(System.getProperty("multiversion.root", ".")).toAbsolutePath().normalize();
+        Transport transport = Transport.valueOf(System.getProperty("cost.transport", Transport.TCP.name()));
+        int warmupRequests = Integer.getInteger("cost.warmup", 2_000);
+        int measuredRequests = Integer.getInteger("cost.requests", 10_000);
+
+        List<IsolatedVersion> versions = new ArrayList<>();
+        for (Path module : findModules(root))
+        {
+            versions.add(new IsolatedVersion(root, module));
+        }
+        if (versions.isEmpty())
+        {
+            System.err.println("No built jetty-*-testing modules found under " + root + ", run mvn test-compile first");
+            System.exit(2);
+        }
+
+        boolean budgets = Boolean.parseBoolean(System.getProperty("cost.budgets", "true"));
+        List<String> overBudget = new ArrayList<>();
+        CrossVersionReport report = new CrossVersionReport(threshold);
+        ExecutorService executor = Executors.newFixedThreadPool(serial ? 1 : versions.size());
+        try
+        {
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    List<Future<ScenarioResult>> futures = new ArrayList<>();
+                    for (IsolatedVersion version : versions)
+                    {
+                        futures.add(executor.submit(() -> version.run(scenario, behavior, transport, warmupRequests, measuredRequests)));
+                    }
+                    for (Future<ScenarioResult> future : futures)
+                    {
+                        ScenarioResult result = future.get();
+                        System.out.println(result);
+                        report.add(result);
+                        String violation = result.checkAllocationBudget();
+                        if (violation != null)
+                            overBudget.add(violation);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            for (IsolatedVersion version : versions)
+            {
+                version.close();
+            }
+        }
+
+        System.out.println();
+        List<String> regressions = report.print(System.out);
+        if (!overBudget.isEmpty())
+        {
+            System.out.println("Over the allocation budget, or not measured:");
+            overBudget.forEach(violation -> System.out.println("  " + violation));
+        }
+        System.exit(regressions.isEmpty() && (overBudget.isEmpty() || !budgets) ? 0 : 1);
+    }
+}
@@ -0,0 +1,239 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Whether a large error page or an aborted response stalls the other requests sharing its connection.
+// Closed loop load alternating two kinds of requests, concurrency of them in flight:
+// - victims, the small SEND_ERROR page from a /victim context
+// - aggressors, the scenario under test from the root context
+// Over TCP every request in flight has its own HTTP/1.1 connection, over H2C they are all streams of a
+// single connection, so a stall shows as victim latencies going up with the aggressor over H2C only.
+// SEND_ERROR is run first as the aggressor to be the control, victimP99VsControl is the victim p99
+// against the control one of the same transport.
+// connectionsOpened is counted by the HttpClient, an aborted response that takes its connection down shows there.
+// Versions built without the http2 artifacts only report TCP, see Transport.supports().
+// java -Dmultiplex.concurrency=100 -Dmultiplex.requests=20000 \
+//   -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.MultiplexBenchmark [outputDir] [scenario...]
+public class MultiplexBenchmark
+{
+    public static final String CSV_HEADER = "version,transport,aggressor,concurrency,requests,unexpectedVictims,unexpectedAggressors," +
+        "connectionsOpened,throughput,victimP50Micros,victimP99Micros,victimMaxMicros,aggressorP50Micros,aggressorP99Micros,victimP99VsControl";
+
+    private final JettySpecific jettySpecific;
+    private final int concurrency;
+    private final int warmupRequests;
+    private final int measuredRequests;
+    private long timeoutSeconds = 30;
+
+    public MultiplexBenchmark(JettySpecific jettySpecific, int concurrency, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.concurrency = concurrency;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    private static class Result
+    {
+        private final String transport;
+        private final ErrorScenario aggressor;
+        private final long unexpectedVictims;
+        private final long unexpectedAggressors;
+        private final long connectionsOpened;
+        private final double throughput;
+        private final Histogram victims;
+        private final Histogram aggressors;
+
+        private Result(String transport, ErrorScenario aggressor, long unexpectedVictims, long unexpectedAggressors,
+                       long connectionsOpened, double throughput, Histogram victims, Histogram aggressors)
+        {
+            this.transport = transport;
+            this.aggressor = aggressor;
+            this.unexpectedVictims = unexpectedVictims;
+            this.unexpectedAggressors = unexpectedAggressors;
+            this.connectionsOpened = connectionsOpened;
+            this.throughput = throughput;
+            this.victims = victims;
+            this.aggressors = aggressors;
+        }
+
+        private String toCsv(int concurrency, int requests, Result control)
+        {
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.2f",
+                ScenarioRunner.getJettyVersion(), transport, aggressor, concurrency, requests,
+                unexpectedVictims, unexpectedAggressors, connectionsOpened, throughput,
+                micros(victims, 50), micros(victims, 99), victims.getMaxValue() / 1000D,
+                micros(aggressors, 50), micros(aggressors, 99),
+                micros(victims, 99) / micros(control.victims, 99));
+        }
+    }
+
+    // Counts the unexpected outcomes of one kind of request
+    private static class Target
+    {
+        private final ErrorScenario scenario;
+        private final URI uri;
+        private final Recorder latencies = new Recorder(3);
+        private final AtomicLong unexpected = new AtomicLong();
+
+        private Target(ErrorScenario scenario, URI uri)
+        {
+            this.scenario = scenario;
+            this.uri = uri;
+        }
+    }
+
+    public Result run(Transport transport, ErrorScenario aggressor) throws Exception
+    {
+        ServletContextHandler victimContext = ErrorScenario.SEND_ERROR.newContextHandler(jettySpecific.getConfig());
+        victimContext.setContextPath("/victim");
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        contexts.addHandler(victimContext);
+        contexts.addHandler(aggressor.newContextHandler(jettySpecific.getConfig()));
+
+        Server server = transport.newServer(jettySpecific);
+        server.setHandler(contexts);
+        HttpClient client = transport == Transport.H2C ? Transport.toH2c(jettySpecific).newH2cClient() : jettySpecific.newClient();
+        // One connection per request in flight over HTTP/1.1, a single connection over h2c
+        client.setMaxConnectionsPerDestination(transport == Transport.H2C ? 1 : concurrency);
+        client.setMaxRequestsQueuedPerDestination(concurrency * 2);
+        ConnectionCounter connections = new ConnectionCounter();
+        client.addBean(connections, false);
+        try
+        {
+            server.start();
+            client.start();
+            Target victim = new Target(ErrorScenario.SEND_ERROR, server.getURI().resolve("/victim/toss/"));
+            Target target = new Target(aggressor, server.getURI().resolve("/toss/"));
+
+            send(client, victim, target, warmupRequests);
+            victim.latencies.getIntervalHistogram();
+            target.latencies.getIntervalHistogram();
+            victim.unexpected.set(0);
+            target.unexpected.set(0);
+            long opened = connections.getOpened();
+
+            long begin = System.nanoTime();
+            send(client, victim, target, measuredRequests);
+            long elapsed = System.nanoTime() - begin;
+
+            return new Result(transport.name(), aggressor, victim.unexpected.get(), target.unexpected.get(),
+                connections.getOpened() - opened,
+                measuredRequests / (elapsed / (double)TimeUnit.SECONDS.toNanos(1)),
+                victim.latencies.getIntervalHistogram(), target.latencies.getIntervalHistogram());
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    // Keeps concurrency requests in flight, alternating victims and aggressors
+    private void send(HttpClient client, Target victim, Target aggressor, int requests) throws InterruptedException
+    {
+        Semaphore inFlight = new Semaphore(concurrency);
+        for (int i = 0; i < requests; i++)
+        {
+            Target target = i % 2 == 0 ? victim : aggressor;
+            inFlight.acquire();
+            long begin = System.nanoTime();
+            client.newRequest(target.uri)
+                .timeout(timeoutSeconds, TimeUnit.SECONDS)
+                .send(result ->
+                {
+                    target.latencies.recordValue(System.nanoTime() - begin);
+                    boolean aborted = result.isFailed();
+                    boolean expected = target.scenario.getOutcome() == ErrorScenario.Outcome.ABORTED
+                        ? aborted
+                        : !aborted && result.getResponse().getStatus() == 301;
+                    if (!expected)
+                        target.unexpected.incrementAndGet();
+                    inFlight.release();
+                });
+        }
+        if (!inFlight.tryAcquire(concurrency, timeoutSeconds + 5, TimeUnit.SECONDS))
+            throw new IllegalStateException("Requests still in flight after " + (timeoutSeconds + 5) + "s");
+    }
+
+    private static double micros(Histogram histogram, double percentile)
+    {
+        return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getValueAtPercentile(percentile) / 1000D;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/multiplex");
+        List<ErrorScenario> aggressors = new ArrayList<>();
+        aggressors.add(ErrorScenario.SEND_ERROR);
+        for (int i = 1; i < args.length; i++)
+        {
+            ErrorScenario scenario = ErrorScenario.valueOf(args[i]);
+            if (!aggressors.contains(scenario))
+                aggressors.add(scenario);
+        }
+        // The large error pages, the aborted response and the AsyncContext one
+        if (aggressors.size() == 1)
+            aggressors.addAll(Arrays.asList(ErrorScenario.SEND_ERROR_LARGE, ErrorScenario.GET_OUTPUT_STREAM_SEND_ERROR_LARGE,
+                ErrorScenario.WRITE_LARGE_SEND_ERROR, ErrorScenario.ASYNC_CONTEXT_SEND_ERROR_WRITE));
+
+        JettySpecific jettySpecific = JettySpecific.load(ServerConfig.fromSystemProperties());
+        MultiplexBenchmark benchmark = new MultiplexBenchmark(jettySpecific, Integer.getInteger("multiplex.concurrency", 100),
+            Integer.getInteger("multiplex.warmup", 5_000), Integer.getInteger("multiplex.requests", 20_000));
+
+        List<Transport> transports = new ArrayList<>();
+        for (Transport transport : Arrays.asList(Transport.TCP, Transport.H2C))
+        {
+            if (transport.supports(jettySpecific))
+                transports.add(transport);
+            else
+                System.out.println("Skipping " + transport + ", not built for Jetty " + ScenarioRunner.getJettyVersion());
+        }
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("multiplex-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (Transport transport : transports)
+            {
+                Result control = null;
+                for (ErrorScenario aggressor : aggressors)
+                {
+                    Result result = benchmark.run(transport, aggressor);
+                    if (control == null)
+                        control = result;
+                    String line = result.toCsv(benchmark.concurrency, benchmark.measuredRequests, control);
+                    System.out.println(line);
+                    writer.println(line);
+                    writer.flush();
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
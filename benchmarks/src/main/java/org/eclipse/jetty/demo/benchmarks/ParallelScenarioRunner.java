@@ -0,0 +1,173 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+// Runs every version x scenario x behavior combination, one at a time and across all cores, and reports the speedup.
+// Every run has its own Server on port 0 and its own client, nothing is shared between runs except the JettySpecific
+// of the version, so the combinations can run in any order. -Dparallel.rounds is how many times the serial and the
+// parallel passes alternate, after an untimed warmup pass.
+// Needs the modules built first (mvn test-compile), then from the project root:
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.ParallelScenarioRunner [--threads=N] [scenario...]
+public class ParallelScenarioRunner
+{
+    private static class Task
+    {
+        private final MultiVersionRunner.IsolatedVersion version;
+        private final ErrorScenario scenario;
+        private final Behavior behavior;
+
+        private Task(MultiVersionRunner.IsolatedVersion version, ErrorScenario scenario, Behavior behavior)
+        {
+            this.version = version;
+            this.scenario = scenario;
+            this.behavior = behavior;
+        }
+
+        @Override
+        public String toString()
+        {
+            return version.getModule() + " " + scenario + "/" + behavior;
+        }
+    }
+
+    private final Transport transport;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public ParallelScenarioRunner(Transport transport, int warmupRequests, int measuredRequests)
+    {
+        this.transport = transport;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    // Returns the wall clock time in nanoseconds to run all the tasks with the given number of threads
+    private long runAll(List<Task> tasks, int threads) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            long start = System.nanoTime();
+            List<Future<ScenarioResult>> futures = new ArrayList<>();
+            for (Task task : tasks)
+            {
+                futures.add(executor.submit(() -> task.version.run(task.scenario, task.behavior, transport, warmupRequests, measuredRequests)));
+            }
+            List<String> failures = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++)
+            {
+                try
+                {
+                    futures.get(i).get();
+                }
+                catch (Exception x)
+                {
+                    failures.add(tasks.get(i) + ": " + x.getCause());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (!failures.isEmpty())
+                throw new IllegalStateException(failures.size() + " failed runs with " + threads + " threads: " + failures);
+            return elapsed;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else
+                scenarios.add(ErrorScenario.valueOf(arg));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        Path root = Paths.get(System.getProperty("multiversion.root", ".")).toAbsolutePath().normalize();
+        Transport transport = Transport.valueOf(System.getProperty("cost.transport", Transport.TCP.name()));
+        int warmupRequests = Integer.getInteger("cost.warmup", 100);
+        int measuredRequests = Integer.getInteger("cost.requests", 500);
+        int rounds = Integer.getInteger("parallel.rounds", 4);
+
+        List<MultiVersionRunner.IsolatedVersion> versions = new ArrayList<>();
+        for (Path module : MultiVersionRunner.findModules(root))
+        {
+            versions.add(new MultiVersionRunner.IsolatedVersion(root, module));
+        }
+        if (versions.isEmpty())
+        {
+            System.err.println("No built jetty-*-testing modules found under " + root + ", run mvn test-compile first");
+            System.exit(2);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (MultiVersionRunner.IsolatedVersion version : versions)
+        {
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    tasks.add(new Task(version, scenario, behavior));
+                }
+            }
+        }
+
+        ParallelScenarioRunner runner = new ParallelScenarioRunner(transport, warmupRequests, measuredRequests);
+        try
+        {
+            // An untimed pass first, so that neither timed pass pays for loading the classes and for the JIT,
+            // then the serial and parallel passes alternate, each going first every other round as the second one
+            // still runs a little warmer, and each keeps its fastest round
+            runner.runAll(tasks, threads);
+            long serial = Long.MAX_VALUE;
+            long parallel = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++)
+            {
+                if (round % 2 == 0)
+                {
+                    serial = Math.min(serial, runner.runAll(tasks, 1));
+                    parallel = Math.min(parallel, runner.runAll(tasks, threads));
+                }
+                else
+                {
+                    parallel = Math.min(parallel, runner.runAll(tasks, threads));
+                    serial = Math.min(serial, runner.runAll(tasks, 1));
+                }
+            }
+
+            System.out.println();
+            System.out.printf(Locale.ROOT, "%d runs (%d versions x %d scenarios x %d behaviors), %d+%d requests each, %s transport%n",
+                tasks.size(), versions.size(), scenarios.size(), Behavior.values().length, warmupRequests, measuredRequests, transport);
+            System.out.printf(Locale.ROOT, "fastest of %d rounds, after a warmup pass%n", rounds);
+            System.out.printf(Locale.ROOT, "serial:   %,d ms%n", TimeUnit.NANOSECONDS.toMillis(serial));
+            System.out.printf(Locale.ROOT, "parallel: %,d ms on %d threads%n", TimeUnit.NANOSECONDS.toMillis(parallel), threads);
+            System.out.printf(Locale.ROOT, "speedup:  %.2fx%n", serial / (double)parallel);
+        }
+        finally
+        {
+            for (MultiVersionRunner.IsolatedVersion version : versions)
+            {
+                version.close();
+            }
+        }
+    }
+}
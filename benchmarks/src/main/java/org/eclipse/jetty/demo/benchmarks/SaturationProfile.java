@@ -0,0 +1,222 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.CountingThreadPool;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.ThreadPoolLimits;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// How the error paths degrade once the server runs out of threads: open loop load, like the LoadGenerator, at
+// increasing rates against a server whose QueuedThreadPool is capped by ThreadPoolLimits, the blocking scenarios
+// against the AsyncContext one, that takes a second pool thread for its async.start() job.
+// For each scenario and rate:
+// - sent, completed: the requests sent, and the ones with the expected ErrorScenario.Outcome
+// - failed: the others, that failed or timed out, most of them on the connections the server closed when its pool
+//   rejected their job; rejected: the jobs the pool rejected because its queue was full
+// - achievedRate, throughput: the rate the requests were sent at, and the expected responses per second
+// - queueDelay: from the execute() of a pool job to a thread running it, peakQueued: the most jobs queued at once
+// - latency: from the time each request was scheduled to be sent, so that a saturated server is not hidden by the
+//   sender slowing down (coordinated omission), the failed requests included
+// -Dsaturation.maxThreads, -Dsaturation.reservedThreads (-1 for the heuristic of the version) and
+// -Dsaturation.queueSize (-1 for unbounded) cap the pool, -Dsaturation.rates the requests per second.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.SaturationProfile [outputDir] [scenario...]
+public class SaturationProfile
+{
+    public static final String CSV_HEADER = "version,scenario,variant,maxThreads,reservedThreads,queueSize,rate,sent,completed,failed,rejected," +
+        "achievedRate,throughput,queueDelayP50Micros,queueDelayP99Micros,queueDelayMaxMicros,peakQueued," +
+        "latencyP50Micros,latencyP90Micros,latencyP99Micros,latencyP999Micros,latencyMaxMicros";
+
+    private final JettySpecific jettySpecific;
+    private final ThreadPoolLimits limits;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private int connections = 512;
+    private long timeoutSeconds = 10;
+
+    public SaturationProfile(JettySpecific jettySpecific, ThreadPoolLimits limits, int warmupSeconds, int durationSeconds)
+    {
+        this.jettySpecific = jettySpecific;
+        this.limits = limits;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public void setConnections(int connections)
+    {
+        this.connections = connections;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds)
+    {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public String run(ErrorScenario scenario, int rate) throws Exception
+    {
+        Server server = jettySpecific.newLimitedServer(limits);
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), Behavior.PLAIN));
+        CountingThreadPool threadPool = (CountingThreadPool)server.getThreadPool();
+        HttpClient client = jettySpecific.newClient();
+        // Enough connections for the server to see the load, instead of the client queueing it
+        client.setMaxConnectionsPerDestination(connections);
+        client.setMaxRequestsQueuedPerDestination(Math.max(1024, rate * (int)timeoutSeconds));
+        try
+        {
+            server.start();
+            client.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+
+            send(client, tossURI, scenario, rate, warmupSeconds, new Recorder(3), new AtomicLong(), new AtomicLong());
+
+            Recorder queueDelays = new Recorder(3);
+            threadPool.setQueueDelayListener(queueDelays::recordValue);
+            threadPool.reset();
+            Recorder latencies = new Recorder(3);
+            AtomicLong completed = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            long start = System.nanoTime();
+            double achievedRate = send(client, tossURI, scenario, rate, durationSeconds, latencies, completed, failed);
+            double seconds = (System.nanoTime() - start) / (double)TimeUnit.SECONDS.toNanos(1);
+            threadPool.setQueueDelayListener(null);
+
+            Histogram queueDelay = queueDelays.getIntervalHistogram();
+            Histogram latency = latencies.getIntervalHistogram();
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%.1f,%.1f,%.1f,%.1f,%.1f",
+                ScenarioRunner.getJettyVersion(), scenario, scenario.isAsyncSupported() ? "async" : "blocking",
+                limits.getMaxThreads(), limits.getReservedThreads(), limits.getQueueSize(), rate,
+                (long)rate * durationSeconds, completed.get(), failed.get(), threadPool.getRejected(),
+                achievedRate, completed.get() / seconds,
+                micros(queueDelay, 50), micros(queueDelay, 99), micros(queueDelay, 100), threadPool.getPeakQueueSize(),
+                micros(latency, 50), micros(latency, 90), micros(latency, 99), micros(latency, 99.9), micros(latency, 100));
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    // Sends rate requests per second for the given seconds, waits for their responses, and returns the rate
+    // the requests were actually sent at. Counts the requests with the expected outcome, and the others.
+    private double send(HttpClient client, URI tossURI, ErrorScenario scenario, int rate, int seconds, Recorder latencies, AtomicLong completed, AtomicLong failed) throws InterruptedException
+    {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = (long)rate * seconds;
+        AtomicLong responded = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++)
+        {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+
+            client.newRequest(tossURI)
+                .timeout(timeoutSeconds, TimeUnit.SECONDS)
+                .send(result ->
+                {
+                    latencies.recordValue(System.nanoTime() - intended);
+                    boolean aborted = result.isFailed();
+                    boolean expected = scenario.getOutcome() == ErrorScenario.Outcome.ABORTED
+                        ? aborted
+                        : !aborted && result.getResponse().getStatus() == 301;
+                    if (expected)
+                        completed.incrementAndGet();
+                    else
+                        failed.incrementAndGet();
+                    responded.incrementAndGet();
+                });
+        }
+        double achievedRate = requests / ((System.nanoTime() - start) / (double)TimeUnit.SECONDS.toNanos(1));
+
+        // The requests still outstanding complete, at the latest, when they time out
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds + 5);
+        while (responded.get() < requests && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        failed.addAndGet(requests - responded.get());
+        return achievedRate;
+    }
+
+    // NaN when nothing was recorded, eg: no job was queued
+    private static double micros(Histogram histogram, double percentile)
+    {
+        return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getValueAtPercentile(percentile) / 1000D;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        // Every rejected job is logged with its stack trace, before the Jetty logging initializes
+        for (String logger : Arrays.asList("org.eclipse.jetty.util.thread.QueuedThreadPool",
+            "org.eclipse.jetty.util.thread.strategy.EatWhatYouKill", "org.eclipse.jetty.server.HttpChannel"))
+        {
+            if (System.getProperty(logger + ".LEVEL") == null)
+                System.setProperty(logger + ".LEVEL", "OFF");
+        }
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/saturation");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        // The AsyncContext scenario, against the blocking ones with the same kind of body
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.ASYNC_CONTEXT_SEND_ERROR_WRITE,
+                ErrorScenario.SEND_ERROR, ErrorScenario.SEND_ERROR_WRITE, ErrorScenario.WRITE_SEND_ERROR));
+        int[] rates = Arrays.stream(System.getProperty("saturation.rates", "1000,4000,16000").split(","))
+            .mapToInt(rate -> Integer.parseInt(rate.trim()))
+            .toArray();
+
+        ThreadPoolLimits limits = new ThreadPoolLimits(Integer.getInteger("saturation.maxThreads", 16),
+            Integer.getInteger("saturation.reservedThreads", 0), Integer.getInteger("saturation.queueSize", 64));
+        SaturationProfile profile = new SaturationProfile(JettySpecific.load(ServerConfig.fromSystemProperties()), limits,
+            Integer.getInteger("saturation.warmupSeconds", 2), Integer.getInteger("saturation.seconds", 5));
+        profile.setConnections(Integer.getInteger("saturation.connections", 512));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("saturation-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            // The first scenarios would otherwise run on a cold JVM
+            for (ErrorScenario scenario : scenarios)
+            {
+                profile.run(scenario, rates[0]);
+            }
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (int rate : rates)
+                {
+                    String line = profile.run(scenario, rate);
+                    System.out.println(line);
+                    writer.println(line);
+                    writer.flush();
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
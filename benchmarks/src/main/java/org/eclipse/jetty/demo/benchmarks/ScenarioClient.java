@@ -0,0 +1,19 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+// Sends one request to /toss/ and verifies the scenario outcome
+public interface ScenarioClient
+{
+    void start() throws Exception;
+
+    void execute(ErrorScenario scenario) throws Exception;
+
+    void stop() throws Exception;
+
+    // Name of the thread pool doing the client work, null if it all happens in the calling thread
+    default String getThreadPoolName()
+    {
+        return null;
+    }
+}
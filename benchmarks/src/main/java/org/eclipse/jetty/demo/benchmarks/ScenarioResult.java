@@ -0,0 +1,144 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.util.Locale;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+
+public class ScenarioResult
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,requests,throughput,p50Micros,p99Micros,serverAllocatedBytesPerRequest,clientAllocatedBytesPerRequest,wireBytesPerRequest";
+    // The server allocations of a server on virtual threads, written n/a in the CSV
+    public static final long NOT_MEASURED = -1;
+
+    private final String version;
+    private final ErrorScenario scenario;
+    private final Behavior behavior;
+    private final long requests;
+    private final double throughput;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final long serverAllocatedBytesPerRequest;
+    private final long clientAllocatedBytesPerRequest;
+    private final long wireBytesPerRequest;
+
+    public ScenarioResult(String version, ErrorScenario scenario, Behavior behavior, long requests, double throughput,
+                          double p50Micros, double p99Micros, long serverAllocatedBytesPerRequest, long clientAllocatedBytesPerRequest,
+                          long wireBytesPerRequest)
+    {
+        this.version = version;
+        this.scenario = scenario;
+        this.behavior = behavior;
+        this.requests = requests;
+        this.throughput = throughput;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.serverAllocatedBytesPerRequest = serverAllocatedBytesPerRequest;
+        this.clientAllocatedBytesPerRequest = clientAllocatedBytesPerRequest;
+        this.wireBytesPerRequest = wireBytesPerRequest;
+    }
+
+    public static ScenarioResult fromCsv(String line)
+    {
+        String[] fields = line.split(",");
+        if (fields.length != 10)
+            throw new IllegalArgumentException("Not a scenario result: " + line);
+        return new ScenarioResult(fields[0],
+            ErrorScenario.valueOf(fields[1]),
+            Behavior.valueOf(fields[2]),
+            Long.parseLong(fields[3]),
+            Double.parseDouble(fields[4]),
+            Double.parseDouble(fields[5]),
+            Double.parseDouble(fields[6]),
+            fields[7].equals("n/a") ? NOT_MEASURED : Long.parseLong(fields[7]),
+            Long.parseLong(fields[8]),
+            Long.parseLong(fields[9]));
+    }
+
+    public String toCsv()
+    {
+        return String.format(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.1f,%.1f,%s,%d,%d",
+            version, scenario, behavior, requests, throughput, p50Micros, p99Micros,
+            isServerAllocationMeasured() ? String.valueOf(serverAllocatedBytesPerRequest) : "n/a",
+            clientAllocatedBytesPerRequest, wireBytesPerRequest);
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public ErrorScenario getScenario()
+    {
+        return scenario;
+    }
+
+    public Behavior getBehavior()
+    {
+        return behavior;
+    }
+
+    public long getRequests()
+    {
+        return requests;
+    }
+
+    // requests per second
+    public double getThroughput()
+    {
+        return throughput;
+    }
+
+    public double getP50Micros()
+    {
+        return p50Micros;
+    }
+
+    public double getP99Micros()
+    {
+        return p99Micros;
+    }
+
+    // allocated by the server thread pool, ie: parsing, handling, error dispatch and generation,
+    // NOT_MEASURED on virtual threads, see ScenarioRunner.isThreadPoolMeasured()
+    public long getServerAllocatedBytesPerRequest()
+    {
+        return serverAllocatedBytesPerRequest;
+    }
+
+    public boolean isServerAllocationMeasured()
+    {
+        return serverAllocatedBytesPerRequest != NOT_MEASURED;
+    }
+
+    // allocated by the client thread pool and by the thread sending the requests
+    public long getClientAllocatedBytesPerRequest()
+    {
+        return clientAllocatedBytesPerRequest;
+    }
+
+    // request and response bytes, as seen by the server connector
+    public long getWireBytesPerRequest()
+    {
+        return wireBytesPerRequest;
+    }
+
+    // Returns why the server allocations are over the scenario budget, or cannot be checked against it,
+    // or null if they are within it
+    public String checkAllocationBudget()
+    {
+        if (!isServerAllocationMeasured())
+            return String.format(Locale.ROOT, "%s %s/%s server allocations are not measured on virtual threads, budget is %d B/req",
+                version, scenario, behavior, scenario.getServerAllocationBudget());
+        if (serverAllocatedBytesPerRequest <= scenario.getServerAllocationBudget())
+            return null;
+        return String.format(Locale.ROOT, "%s %s/%s server allocated %d B/req, budget is %d B/req",
+            version, scenario, behavior, serverAllocatedBytesPerRequest, scenario.getServerAllocationBudget());
+    }
+
+    @Override
+    public String toString()
+    {
+        return toCsv();
+    }
+}
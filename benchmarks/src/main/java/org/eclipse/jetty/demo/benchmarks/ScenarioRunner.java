@@ -0,0 +1,246 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.VirtualThreadPool;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.Jetty;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+public class ScenarioRunner
+{
+    private int warmupRequests = 2_000;
+    private int measuredRequests = 10_000;
+    private Transport transport = Transport.TCP;
+
+    public Transport getTransport()
+    {
+        return transport;
+    }
+
+    public void setTransport(Transport transport)
+    {
+        this.transport = transport;
+    }
+
+    public int getWarmupRequests()
+    {
+        return warmupRequests;
+    }
+
+    public void setWarmupRequests(int warmupRequests)
+    {
+        this.warmupRequests = warmupRequests;
+    }
+
+    public int getMeasuredRequests()
+    {
+        return measuredRequests;
+    }
+
+    public void setMeasuredRequests(int measuredRequests)
+    {
+        this.measuredRequests = measuredRequests;
+    }
+
+    public ScenarioResult run(JettySpecific jettySpecific, ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        Server server = transport.newServer(jettySpecific);
+        Connector connector = server.getConnectors()[0];
+        // Unmanaged, so that it still counts the connections closed by server.stop()
+        ConnectionStatistics connectionStatistics = new ConnectionStatistics();
+        connectionStatistics.start();
+        connector.addBean(connectionStatistics, false);
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+
+        ScenarioClient warmupClient = null;
+        ScenarioClient client = null;
+        try
+        {
+            server.start();
+
+            warmupClient = transport.newClient(jettySpecific, server);
+            warmupClient.start();
+            for (int i = 0; i < warmupRequests; i++)
+            {
+                warmupClient.execute(scenario);
+            }
+            warmupClient.stop();
+            awaitNoConnections(connectionStatistics);
+            connectionStatistics.reset();
+
+            client = transport.newClient(jettySpecific, server);
+            client.start();
+
+            // Only this run's threads, other runs may share the JVM (see MultiVersionRunner)
+            List<String> serverThreadPools = getThreadPoolNames(server);
+            List<String> clientThreadPools = new ArrayList<>();
+            if (client.getThreadPoolName() != null)
+                clientThreadPools.add(client.getThreadPoolName());
+
+            long[] latencies = new long[measuredRequests];
+            long serverAllocatedBefore = getAllocatedBytes(serverThreadPools, false);
+            long clientAllocatedBefore = getAllocatedBytes(clientThreadPools, true);
+            long start = System.nanoTime();
+            for (int i = 0; i < measuredRequests; i++)
+            {
+                long begin = System.nanoTime();
+                client.execute(scenario);
+                latencies[i] = System.nanoTime() - begin;
+            }
+            long elapsed = System.nanoTime() - start;
+            long clientAllocated = getAllocatedBytes(clientThreadPools, true) - clientAllocatedBefore;
+            long serverAllocated = getAllocatedBytes(serverThreadPools, false) - serverAllocatedBefore;
+            long serverAllocatedPerRequest = isThreadPoolMeasured(server) ? serverAllocated / measuredRequests : ScenarioResult.NOT_MEASURED;
+
+            client.stop();
+            server.stop();
+            long wireBytes = connectionStatistics.getReceivedBytes() + connectionStatistics.getSentBytes();
+
+            Arrays.sort(latencies);
+            return new ScenarioResult(getJettyVersion(), scenario, behavior, measuredRequests,
+                measuredRequests / (elapsed / (double)TimeUnit.SECONDS.toNanos(1)),
+                percentile(latencies, 0.50) / 1000D,
+                percentile(latencies, 0.99) / 1000D,
+                serverAllocatedPerRequest,
+                clientAllocated / measuredRequests,
+                wireBytes / measuredRequests);
+        }
+        finally
+        {
+            stop(warmupClient);
+            stop(client);
+            LifeCycle.stop(server);
+            connectionStatistics.stop();
+        }
+    }
+
+    // Called reflectively by MultiVersionRunner from inside an isolated class loader,
+    // so only JDK types cross the class loader boundary
+    public static String runToCsv(String scenario, String behavior, String transport, int warmupRequests, int measuredRequests) throws Exception
+    {
+        ScenarioRunner runner = new ScenarioRunner();
+        runner.setTransport(Transport.valueOf(transport));
+        runner.setWarmupRequests(warmupRequests);
+        runner.setMeasuredRequests(measuredRequests);
+        return runner.run(JettySpecific.load(ServerConfig.fromSystemProperties()), ErrorScenario.valueOf(scenario), Behavior.valueOf(behavior)).toCsv();
+    }
+
+    private static void stop(ScenarioClient client)
+    {
+        try
+        {
+            if (client != null)
+                client.stop();
+        }
+        catch (Exception x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+
+    // Jetty.VERSION comes from the jar manifest, which is lost once shaded into the benchmarks jar
+    public static String getJettyVersion()
+    {
+        try (InputStream in = Server.class.getResourceAsStream("/META-INF/maven/org.eclipse.jetty/jetty-server/pom.properties"))
+        {
+            if (in != null)
+            {
+                Properties properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version", Jetty.VERSION);
+            }
+        }
+        catch (IOException ignored)
+        {
+        }
+        return Jetty.VERSION;
+    }
+
+    public static long percentile(long[] sorted, double percentile)
+    {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int)Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    // The names of the server pool threads, for getAllocatedBytes() and getCpuTime()
+    public static List<String> getThreadPoolNames(Server server)
+    {
+        List<String> threadPoolNames = new ArrayList<>();
+        if (server.getThreadPool() instanceof QueuedThreadPool)
+            threadPoolNames.add(((QueuedThreadPool)server.getThreadPool()).getName());
+        else if (server.getThreadPool() instanceof VirtualThreadPool)
+            threadPoolNames.add(((VirtualThreadPool)server.getThreadPool()).getName());
+        return threadPoolNames;
+    }
+
+    // Whether getAllocatedBytes() and getCpuTime() see the server threads,
+    // ThreadMXBean does not report the virtual threads, they would count as 0
+    public static boolean isThreadPoolMeasured(Server server)
+    {
+        return !(server.getThreadPool() instanceof VirtualThreadPool && ((VirtualThreadPool)server.getThreadPool()).isVirtual());
+    }
+
+    // Bytes allocated so far by the threads of the named pools, and optionally by the calling thread.
+    public static long getAllocatedBytes(Collection<String> threadPoolNames, boolean includeCurrentThread)
+    {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        return sumThreads(threadPoolNames, includeCurrentThread, threadMXBean::getThreadAllocatedBytes);
+    }
+
+    // CPU time in nanoseconds used so far by the threads of the named pools, and optionally by the calling thread.
+    public static long getCpuTime(Collection<String> threadPoolNames, boolean includeCurrentThread)
+    {
+        return sumThreads(threadPoolNames, includeCurrentThread, ManagementFactory.getThreadMXBean()::getThreadCpuTime);
+    }
+
+    // QueuedThreadPool names its threads <pool name>-<thread id>, VirtualThreadPool does the same.
+    private static long sumThreads(Collection<String> threadPoolNames, boolean includeCurrentThread, LongUnaryOperator metric)
+    {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long current = Thread.currentThread().getId();
+        long total = 0;
+        for (ThreadInfo thread : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0))
+        {
+            if (thread == null)
+                continue;
+            boolean counted = includeCurrentThread && thread.getThreadId() == current;
+            for (String threadPoolName : threadPoolNames)
+            {
+                counted |= thread.getThreadName().startsWith(threadPoolName + "-");
+            }
+            if (counted)
+                total += Math.max(0, metric.applyAsLong(thread.getThreadId()));
+        }
+        return total;
+    }
+
+    private static void awaitNoConnections(ConnectionStatistics connectionStatistics) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connectionStatistics.getConnections() > 0 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+    }
+}
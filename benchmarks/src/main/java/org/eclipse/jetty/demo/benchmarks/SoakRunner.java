@@ -0,0 +1,348 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.demo.common.AbstractCommonTest;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.CountingByteBufferPool;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Sends every ErrorScenario, or the given ones, with every Behavior to one server, round robin, -Dsoak.requests times (default 2M)
+// from -Dsoak.clients threads (default 8), each scenario and behavior in a context of its own: /<behavior>/<scenario>/.
+// Every -Dsoak.sampleMillis (default 5000) a sample is taken after a System.gc():
+// - heapUsed, directUsed and directBuffers of the JVM
+// - outstandingBuffers and outstandingBufferBytes: acquired from the CountingByteBufferPool of the connector and not
+//   released, see ServerConfig.withBufferCounting()
+// - openFds of the process, -1 when the JVM cannot tell
+// The first quarter of the samples is the warmup. A metric grows without bound when the lowest of the last third of
+// the other samples is over the lowest of their first third by more than its tolerance, -Dsoak.<metric>Tolerance.
+// Once the client is stopped, the outstanding buffers must be back to 0, aborted responses included.
+// Writes the samples to <outputDir>/soak-jetty-<version>.csv and the verdicts to <outputDir>/soak-summary-jetty-<version>.csv.
+// Exits with 1 if any metric grew, or buffers are still outstanding.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.SoakRunner [outputDir] [scenario...]
+public class SoakRunner
+{
+    public static final String CSV_HEADER = "version,elapsedSeconds,requests,aborted,heapUsed,directUsed,directBuffers," +
+        "outstandingBuffers,outstandingBufferBytes,openFds";
+    public static final String SUMMARY_CSV_HEADER = "version,metric,firstMin,lastMin,growth,tolerance,verdict";
+
+    public enum Metric
+    {
+        HEAP_USED("heapUsed", 32L * 1024 * 1024),
+        DIRECT_USED("directUsed", 4L * 1024 * 1024),
+        DIRECT_BUFFERS("directBuffers", 256),
+        OUTSTANDING_BUFFERS("outstandingBuffers", 64),
+        OUTSTANDING_BUFFER_BYTES("outstandingBufferBytes", 2L * 1024 * 1024),
+        OPEN_FDS("openFds", 32);
+
+        private final String column;
+        private final long tolerance;
+
+        Metric(String column, long tolerance)
+        {
+            this.column = column;
+            this.tolerance = Long.getLong("soak." + column + "Tolerance", tolerance);
+        }
+
+        public String getColumn()
+        {
+            return column;
+        }
+
+        public long getTolerance()
+        {
+            return tolerance;
+        }
+    }
+
+    public static class Sample
+    {
+        private final long elapsedNanos;
+        private final long requests;
+        private final long aborted;
+        private final long[] values = new long[Metric.values().length];
+
+        private Sample(long elapsedNanos, long requests, long aborted)
+        {
+            this.elapsedNanos = elapsedNanos;
+            this.requests = requests;
+            this.aborted = aborted;
+        }
+
+        public long get(Metric metric)
+        {
+            return values[metric.ordinal()];
+        }
+
+        public String toCsv()
+        {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%s,%.1f,%d,%d",
+                ScenarioRunner.getJettyVersion(), elapsedNanos / 1_000_000_000D, requests, aborted));
+            for (long value : values)
+            {
+                line.append(',').append(value);
+            }
+            return line.toString();
+        }
+    }
+
+    private final JettySpecific jettySpecific;
+    private final List<ErrorScenario> scenarios;
+    private final long totalRequests;
+    private final int clients;
+    private final long sampleMillis;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final List<Throwable> failures = new ArrayList<>();
+
+    public SoakRunner(JettySpecific jettySpecific, List<ErrorScenario> scenarios, long totalRequests, int clients, long sampleMillis)
+    {
+        this.jettySpecific = jettySpecific.withConfig(jettySpecific.getConfig().withBufferCounting(true));
+        this.scenarios = scenarios;
+        this.totalRequests = totalRequests;
+        this.clients = clients;
+        this.sampleMillis = sampleMillis;
+    }
+
+    // Samples until the requests are sent, then the outstanding buffers once the client is stopped, last
+    public List<Sample> run(PrintWriter writer) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        CountingByteBufferPool bufferPool = (CountingByteBufferPool)server.getConnectors()[0].getByteBufferPool();
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        List<String> paths = new ArrayList<>();
+        for (Behavior behavior : Behavior.values())
+        {
+            for (ErrorScenario scenario : scenarios)
+            {
+                String contextPath = "/" + behavior.name().toLowerCase(Locale.ROOT) + "/" + scenario.name().toLowerCase(Locale.ROOT);
+                ServletContextHandler contextHandler = scenario.newContextHandler(jettySpecific.getConfig());
+                contextHandler.setContextPath(contextPath);
+                contexts.addHandler(ErrorScenario.withBehavior(jettySpecific.getConfig(), contextHandler, behavior, AbstractCommonTest.newGzipHandler()));
+                paths.add(contextPath + "/toss/");
+            }
+        }
+        server.setHandler(contexts);
+
+        HttpClient client = null;
+        List<Sample> samples = new ArrayList<>();
+        try
+        {
+            server.start();
+            URI uri = server.getURI();
+            client = jettySpecific.newClient();
+            client.start();
+
+            long begin = System.nanoTime();
+            CountDownLatch finished = new CountDownLatch(clients);
+            for (int i = 0; i < clients; i++)
+            {
+                HttpClient httpClient = client;
+                Thread thread = new Thread(() ->
+                {
+                    try
+                    {
+                        send(httpClient, uri, paths);
+                    }
+                    finally
+                    {
+                        finished.countDown();
+                    }
+                }, "soak-client-" + i);
+                thread.start();
+            }
+
+            boolean done = false;
+            while (!done)
+            {
+                done = finished.await(sampleMillis, TimeUnit.MILLISECONDS);
+                Sample sample = sample(begin, bufferPool);
+                samples.add(sample);
+                writer.println(sample.toCsv());
+                writer.flush();
+                System.out.println(sample.toCsv());
+                synchronized (failures)
+                {
+                    if (!failures.isEmpty())
+                        throw new IllegalStateException("Soak failed after " + completed.get() + " requests", failures.get(0));
+                }
+            }
+
+            // Idle connections hold no buffer, the client closing them returns the ones of the server
+            client.stop();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (bufferPool.getOutstanding() > 0 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(50);
+            }
+            Sample settled = sample(begin, bufferPool);
+            samples.add(settled);
+            writer.println(settled.toCsv());
+            System.out.println(settled.toCsv());
+            return samples;
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    private void send(HttpClient client, URI uri, List<String> paths)
+    {
+        long index;
+        while ((index = sent.getAndIncrement()) < totalRequests)
+        {
+            String path = paths.get((int)(index % paths.size()));
+            try
+            {
+                ContentResponse response = client.newRequest(uri.resolve(path))
+                    .timeout(30, TimeUnit.SECONDS)
+                    .send();
+                if (response.getStatus() != 301)
+                    throw new IllegalStateException("Unexpected status " + response.getStatus() + " for " + path);
+            }
+            catch (ExecutionException x)
+            {
+                aborted.incrementAndGet();
+            }
+            catch (Exception x)
+            {
+                synchronized (failures)
+                {
+                    failures.add(x);
+                }
+                return;
+            }
+            completed.incrementAndGet();
+        }
+    }
+
+    private Sample sample(long begin, CountingByteBufferPool bufferPool)
+    {
+        System.gc();
+        Sample sample = new Sample(System.nanoTime() - begin, completed.get(), aborted.get());
+        sample.values[Metric.HEAP_USED.ordinal()] = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if ("direct".equals(pool.getName()))
+            {
+                sample.values[Metric.DIRECT_USED.ordinal()] = pool.getMemoryUsed();
+                sample.values[Metric.DIRECT_BUFFERS.ordinal()] = pool.getCount();
+            }
+        }
+        sample.values[Metric.OUTSTANDING_BUFFERS.ordinal()] = bufferPool.getOutstanding();
+        sample.values[Metric.OUTSTANDING_BUFFER_BYTES.ordinal()] = bufferPool.getOutstandingBytes();
+        sample.values[Metric.OPEN_FDS.ordinal()] = openFileDescriptors();
+        return sample;
+    }
+
+    private static long openFileDescriptors()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean)
+            return ((com.sun.management.UnixOperatingSystemMXBean)os).getOpenFileDescriptorCount();
+        return -1;
+    }
+
+    // The summary lines, null verdicts being the metrics that did not grow
+    public static List<String> check(List<Sample> samples, List<String> violations)
+    {
+        List<String> lines = new ArrayList<>();
+        // Without the settled sample
+        List<Sample> measured = samples.subList(samples.size() / 4, Math.max(samples.size() / 4, samples.size() - 1));
+        if (measured.size() < 6)
+        {
+            violations.add("Only " + measured.size() + " samples after the warmup, send more requests or sample more often");
+            return lines;
+        }
+        int third = measured.size() / 3;
+        for (Metric metric : Metric.values())
+        {
+            long firstMin = measured.subList(0, third).stream().mapToLong(sample -> sample.get(metric)).min().orElse(0);
+            long lastMin = measured.subList(measured.size() - third, measured.size()).stream().mapToLong(sample -> sample.get(metric)).min().orElse(0);
+            long growth = lastMin - firstMin;
+            boolean grew = firstMin >= 0 && growth > metric.getTolerance();
+            if (grew)
+                violations.add(String.format("%s grew by %d, from %d to %d", metric.getColumn(), growth, firstMin, lastMin));
+            lines.add(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%s", ScenarioRunner.getJettyVersion(), metric.getColumn(),
+                firstMin, lastMin, growth, metric.getTolerance(), grew ? "GREW" : "OK"));
+        }
+        long settled = samples.get(samples.size() - 1).get(Metric.OUTSTANDING_BUFFERS);
+        if (settled > 0)
+            violations.add(settled + " buffers still outstanding once the client stopped");
+        lines.add(String.format(Locale.ROOT, "%s,settledOutstandingBuffers,%d,%d,%d,0,%s", ScenarioRunner.getJettyVersion(),
+            settled, settled, settled, settled > 0 ? "LEAKED" : "OK"));
+        return lines;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/soak");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        SoakRunner runner = new SoakRunner(JettySpecific.load(ServerConfig.fromSystemProperties()), scenarios, Long.getLong("soak.requests", 2_000_000),
+            Integer.getInteger("soak.clients", 8), Long.getLong("soak.sampleMillis", 5_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("soak-jetty-" + version + ".csv");
+        Path summaryOutput = outputDir.resolve("soak-summary-jetty-" + version + ".csv");
+        List<String> violations = new ArrayList<>();
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+             PrintWriter summaryWriter = new PrintWriter(Files.newBufferedWriter(summaryOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            List<Sample> samples = runner.run(writer);
+
+            summaryWriter.println(SUMMARY_CSV_HEADER);
+            System.out.println(SUMMARY_CSV_HEADER);
+            for (String line : check(samples, violations))
+            {
+                System.out.println(line);
+                summaryWriter.println(line);
+            }
+        }
+        System.out.println("Wrote " + output);
+        System.out.println("Wrote " + summaryOutput);
+
+        if (!violations.isEmpty())
+        {
+            System.out.println("Unbounded growth:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+    }
+}
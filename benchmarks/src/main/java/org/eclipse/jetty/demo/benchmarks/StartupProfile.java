@@ -0,0 +1,327 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.LazyHandler;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HandlerContainer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// How long a new server takes to start and to send its first response, with the handlers created by Server.start()
+// (EAGER) or by the first request through a LazyHandler (LAZY). Every iteration is a new server from the JettySpecific,
+// its connector opened, the server started, one request sent on a plain Socket so that no client classes are loaded,
+// and the server stopped.
+// The components are timed from their LifeCycle events, wherever they start: in Server.start() when EAGER, in the first
+// request when LAZY. Their times exclude the components started within them, eg: the ServletContextHandler time does
+// not include its ErrorPageErrorHandler, nor the GzipHandler of GZIP_INTERNAL.
+// Writes <outputDir>/startup-jetty-<version>.csv with, per behavior and mode:
+// - coldStartMillis, coldFirstResponseMillis, coldStartClasses, coldFirstResponseClasses: the first iteration, and the
+//   classes it loaded. Only the first behavior and mode of the JVM is really cold, pass one of each for the others.
+// - startP50Micros, startP99Micros: connector open and Server.start()
+// - connectorOpen, connectorStart, contextStart, errorHandlerStart, gzipStart: p50 of each component, 0 when absent
+// - firstResponseP50Micros, startToFirstResponseP50Micros: the first request, and from the connector open to its response
+// - stopP50Micros
+// The iterations after the first are in the percentiles, -Dstartup.iterations (default 200).
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.StartupProfile [outputDir] [scenario] [behavior...]
+public class StartupProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,mode,iterations,coldStartMillis,coldFirstResponseMillis," +
+        "coldStartClasses,coldFirstResponseClasses,startP50Micros,startP99Micros,connectorOpenP50Micros,connectorStartP50Micros," +
+        "contextStartP50Micros,errorHandlerStartP50Micros,gzipStartP50Micros,firstResponseP50Micros,startToFirstResponseP50Micros,stopP50Micros";
+
+    public enum Mode
+    {
+        EAGER,
+        LAZY
+    }
+
+    public enum Component
+    {
+        CONNECTOR_OPEN,
+        CONNECTOR_START,
+        CONTEXT_START,
+        ERROR_HANDLER_START,
+        GZIP_START
+    }
+
+    public static class Startup
+    {
+        private final Map<Component, long[]> intervals = new EnumMap<>(Component.class);
+        private long startNanos;
+        private long firstResponseNanos;
+        private long stopNanos;
+        private long startClasses;
+        private long firstResponseClasses;
+
+        private void onStarting(Component component)
+        {
+            intervals.put(component, new long[]{System.nanoTime(), -1});
+        }
+
+        private void onStarted(Component component)
+        {
+            long[] interval = intervals.get(component);
+            if (interval != null)
+                interval[1] = System.nanoTime();
+        }
+
+        // The time of the component, without the components started within it, 0 when it did not start
+        public long getNanos(Component component)
+        {
+            long[] interval = intervals.get(component);
+            if (interval == null || interval[1] < 0)
+                return 0;
+            long nanos = interval[1] - interval[0];
+            for (Map.Entry<Component, long[]> entry : intervals.entrySet())
+            {
+                if (entry.getKey() != component && isWithin(entry.getValue(), interval) && !isNested(entry.getKey(), component))
+                    nanos -= entry.getValue()[1] - entry.getValue()[0];
+            }
+            return nanos;
+        }
+
+        // Whether the inner component is within another one that is itself within the outer one
+        private boolean isNested(Component inner, Component outer)
+        {
+            long[] innerInterval = intervals.get(inner);
+            long[] outerInterval = intervals.get(outer);
+            for (Map.Entry<Component, long[]> entry : intervals.entrySet())
+            {
+                if (entry.getKey() != inner && entry.getKey() != outer &&
+                    isWithin(innerInterval, entry.getValue()) && isWithin(entry.getValue(), outerInterval))
+                    return true;
+            }
+            return false;
+        }
+
+        private static boolean isWithin(long[] inner, long[] outer)
+        {
+            return inner[1] >= 0 && outer[1] >= 0 && inner[0] >= outer[0] && inner[1] <= outer[1];
+        }
+
+        public long getStartNanos()
+        {
+            return startNanos;
+        }
+
+        public long getFirstResponseNanos()
+        {
+            return firstResponseNanos;
+        }
+
+        public long getStopNanos()
+        {
+            return stopNanos;
+        }
+
+        public long getStartClasses()
+        {
+            return startClasses;
+        }
+
+        public long getFirstResponseClasses()
+        {
+            return firstResponseClasses;
+        }
+
+        private void track(Component component, LifeCycle lifeCycle)
+        {
+            if (lifeCycle == null)
+                return;
+            lifeCycle.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener()
+            {
+                @Override
+                public void lifeCycleStarting(LifeCycle event)
+                {
+                    onStarting(component);
+                }
+
+                @Override
+                public void lifeCycleStarted(LifeCycle event)
+                {
+                    onStarted(component);
+                }
+            });
+        }
+
+        // Tracks the components of a scenario handler, before it starts
+        private Handler track(Handler handler)
+        {
+            ServletContextHandler contextHandler = handler instanceof ServletContextHandler
+                ? (ServletContextHandler)handler
+                : ((HandlerContainer)handler).getChildHandlerByClass(ServletContextHandler.class);
+            track(Component.CONTEXT_START, contextHandler);
+            track(Component.ERROR_HANDLER_START, contextHandler.getErrorHandler());
+            track(Component.GZIP_START, handler instanceof GzipHandler ? (GzipHandler)handler : contextHandler.getGzipHandler());
+            return handler;
+        }
+    }
+
+    private final JettySpecific jettySpecific;
+    private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+    public StartupProfile(JettySpecific jettySpecific)
+    {
+        this.jettySpecific = jettySpecific;
+    }
+
+    public Startup run(ErrorScenario scenario, Behavior behavior, Mode mode) throws Exception
+    {
+        Startup startup = new Startup();
+        Server server = jettySpecific.newServer();
+        ServerConnector connector = (ServerConnector)server.getConnectors()[0];
+        Supplier<Handler> handlers = () -> startup.track(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        server.setHandler(mode == Mode.LAZY ? new LazyHandler(handlers) : handlers.get());
+        startup.track(Component.CONNECTOR_START, connector);
+
+        try
+        {
+            long classes = classLoading.getTotalLoadedClassCount();
+            long begin = System.nanoTime();
+            startup.onStarting(Component.CONNECTOR_OPEN);
+            // Server.start() does not open it again
+            connector.open();
+            startup.onStarted(Component.CONNECTOR_OPEN);
+            server.start();
+            long started = System.nanoTime();
+            startup.startNanos = started - begin;
+            startup.startClasses = classLoading.getTotalLoadedClassCount() - classes;
+
+            classes = classLoading.getTotalLoadedClassCount();
+            send(connector.getLocalPort());
+            startup.firstResponseNanos = System.nanoTime() - started;
+            startup.firstResponseClasses = classLoading.getTotalLoadedClassCount() - classes;
+        }
+        finally
+        {
+            long stopping = System.nanoTime();
+            LifeCycle.stop(server);
+            startup.stopNanos = System.nanoTime() - stopping;
+        }
+        return startup;
+    }
+
+    // Reads the response until the server closes the connection, aborted responses included
+    private static void send(int port) throws Exception
+    {
+        try (Socket socket = new Socket("localhost", port))
+        {
+            OutputStream output = socket.getOutputStream();
+            output.write(("GET /toss/ HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Connection: close\r\n" +
+                "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            while (input.read(buffer) >= 0)
+            {
+                // Until the end of the response
+            }
+        }
+    }
+
+    public static String toCsv(ErrorScenario scenario, Behavior behavior, Mode mode, List<Startup> startups)
+    {
+        Startup cold = startups.get(0);
+        List<Startup> warm = startups.subList(Math.min(1, startups.size() - 1), startups.size());
+        long[] start = sorted(warm, Startup::getStartNanos);
+        return String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.2f,%.2f,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f",
+            ScenarioRunner.getJettyVersion(), scenario, behavior, mode, startups.size(),
+            cold.getStartNanos() / 1_000_000D,
+            cold.getFirstResponseNanos() / 1_000_000D,
+            cold.getStartClasses(),
+            cold.getFirstResponseClasses(),
+            ScenarioRunner.percentile(start, 0.50) / 1000D,
+            ScenarioRunner.percentile(start, 0.99) / 1000D,
+            p50(warm, startup -> startup.getNanos(Component.CONNECTOR_OPEN)),
+            p50(warm, startup -> startup.getNanos(Component.CONNECTOR_START)),
+            p50(warm, startup -> startup.getNanos(Component.CONTEXT_START)),
+            p50(warm, startup -> startup.getNanos(Component.ERROR_HANDLER_START)),
+            p50(warm, startup -> startup.getNanos(Component.GZIP_START)),
+            p50(warm, Startup::getFirstResponseNanos),
+            p50(warm, startup -> startup.getStartNanos() + startup.getFirstResponseNanos()),
+            p50(warm, Startup::getStopNanos));
+    }
+
+    private static double p50(List<Startup> startups, ToLongFunction<Startup> nanos)
+    {
+        return ScenarioRunner.percentile(sorted(startups, nanos), 0.50) / 1000D;
+    }
+
+    private static long[] sorted(List<Startup> startups, ToLongFunction<Startup> nanos)
+    {
+        return startups.stream().mapToLong(nanos).sorted().toArray();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/startup");
+        ErrorScenario scenario = args.length > 1 ? ErrorScenario.valueOf(args[1]) : ErrorScenario.SEND_ERROR;
+        List<Behavior> behaviors = new ArrayList<>();
+        for (int i = 2; i < args.length; i++)
+        {
+            behaviors.add(Behavior.valueOf(args[i]));
+        }
+        if (behaviors.isEmpty())
+            behaviors.addAll(Arrays.asList(Behavior.values()));
+        List<Mode> modes = new ArrayList<>();
+        for (String mode : System.getProperty("startup.modes", "EAGER,LAZY").split(","))
+        {
+            modes.add(Mode.valueOf(mode.trim()));
+        }
+        int iterations = Math.max(2, Integer.getInteger("startup.iterations", 200));
+
+        StartupProfile profile = new StartupProfile(JettySpecific.load(ServerConfig.fromSystemProperties()));
+
+        Files.createDirectories(outputDir);
+        Path output = outputDir.resolve("startup-jetty-" + ScenarioRunner.getJettyVersion() + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (Behavior behavior : behaviors)
+            {
+                for (Mode mode : modes)
+                {
+                    List<Startup> startups = new ArrayList<>();
+                    for (int i = 0; i < iterations; i++)
+                    {
+                        startups.add(profile.run(scenario, behavior, mode));
+                    }
+                    String line = toCsv(scenario, behavior, mode, startups);
+                    System.out.println(line);
+                    writer.println(line);
+                    writer.flush();
+                }
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+}
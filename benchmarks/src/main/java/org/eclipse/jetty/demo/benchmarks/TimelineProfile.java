@@ -0,0 +1,213 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.TimelineRecorder;
+import org.eclipse.jetty.demo.common.TimelineRecorder.Phase;
+import org.eclipse.jetty.demo.common.TimelineRecorder.Timeline;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Where the time of each scenario goes on the server, phase by phase, from the TimelineRecorder that every
+// JettySpecific registers on its connector with ServerConfig.withTimeline(true), see TimelineRecorder.Phase.
+// A keep-alive HttpClient sends one request after the other, so the phases are not queued behind each other.
+// Writes <outputDir>/timeline-jetty-<version>.csv with, per scenario, behavior and phase:
+// - count: the requests that went through the phase, eg: there is no ERROR_PAGE when the response was aborted
+// - p50/p90/p99/max/meanMicros of the phase
+// - contentsPerRequest: how many times content was handed to the transport per request
+// And <outputDir>/timeline-histogram-jetty-<version>.csv with the count of each phase per power of two microseconds,
+// upperMicros being the exclusive upper bound of the bucket.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.TimelineProfile [outputDir] [scenario...]
+public class TimelineProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,phase,count,p50Micros,p90Micros,p99Micros,maxMicros,meanMicros,contentsPerRequest";
+    public static final String HISTOGRAM_CSV_HEADER = "version,scenario,behavior,phase,upperMicros,count";
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public TimelineProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific.withConfig(jettySpecific.getConfig().withTimeline(true));
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    public List<Timeline> run(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        TimelineRecorder recorder = server.getConnectors()[0].getBean(TimelineRecorder.class);
+        if (recorder == null)
+            throw new IllegalStateException("No TimelineRecorder on " + server.getConnectors()[0]);
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+
+        HttpClient client = null;
+        try
+        {
+            server.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+            client = jettySpecific.newClient();
+            client.start();
+
+            for (int i = 0; i < warmupRequests; i++)
+            {
+                send(client, tossURI, scenario);
+            }
+            awaitTimelines(recorder, warmupRequests, new ArrayList<>());
+
+            for (int i = 0; i < measuredRequests; i++)
+            {
+                send(client, tossURI, scenario);
+            }
+            List<Timeline> timelines = new ArrayList<>();
+            awaitTimelines(recorder, measuredRequests, timelines);
+            return timelines;
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    public static List<String> toCsv(ErrorScenario scenario, Behavior behavior, List<Timeline> timelines)
+    {
+        double contentsPerRequest = timelines.stream().mapToInt(Timeline::getContents).average().orElse(0);
+        List<String> lines = new ArrayList<>();
+        for (Phase phase : Phase.values())
+        {
+            long[] durations = durations(phase, timelines);
+            lines.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.2f",
+                ScenarioRunner.getJettyVersion(), scenario, behavior, phase, durations.length,
+                ScenarioRunner.percentile(durations, 0.50) / 1000D,
+                ScenarioRunner.percentile(durations, 0.90) / 1000D,
+                ScenarioRunner.percentile(durations, 0.99) / 1000D,
+                durations.length == 0 ? 0 : durations[durations.length - 1] / 1000D,
+                Arrays.stream(durations).average().orElse(0) / 1000D,
+                contentsPerRequest));
+        }
+        return lines;
+    }
+
+    public static List<String> toHistogramCsv(ErrorScenario scenario, Behavior behavior, List<Timeline> timelines)
+    {
+        List<String> lines = new ArrayList<>();
+        for (Phase phase : Phase.values())
+        {
+            // Bucket n counts the durations in [2^(n-1), 2^n) microseconds, bucket 0 the ones under 1us
+            long[] buckets = new long[64];
+            for (long duration : durations(phase, timelines))
+            {
+                buckets[64 - Long.numberOfLeadingZeros(duration / 1000)]++;
+            }
+            for (int bucket = 0; bucket < buckets.length; bucket++)
+            {
+                if (buckets[bucket] > 0)
+                    lines.add(String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d",
+                        ScenarioRunner.getJettyVersion(), scenario, behavior, phase, 1L << bucket, buckets[bucket]));
+            }
+        }
+        return lines;
+    }
+
+    // Sorted, the requests without the phase are left out
+    private static long[] durations(Phase phase, List<Timeline> timelines)
+    {
+        return timelines.stream().mapToLong(phase::getDuration).filter(duration -> duration >= 0).sorted().toArray();
+    }
+
+    // The channel completes after the client got the response
+    private static void awaitTimelines(TimelineRecorder recorder, int count, List<Timeline> timelines) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true)
+        {
+            timelines.addAll(recorder.drain());
+            if (timelines.size() >= count || System.nanoTime() > deadline)
+                return;
+            Thread.sleep(10);
+        }
+    }
+
+    private static void send(HttpClient client, URI tossURI, ErrorScenario scenario) throws Exception
+    {
+        if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+        {
+            try
+            {
+                client.newRequest(tossURI).send();
+            }
+            catch (ExecutionException expected)
+            {
+                return;
+            }
+            throw new IllegalStateException("Expected " + scenario + " to abort the response");
+        }
+
+        ContentResponse response = client.GET(tossURI);
+        if (response.getStatus() != 301)
+            throw new IllegalStateException("Expected 301 from " + scenario + " but got " + response.getStatus());
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/timeline");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        TimelineProfile profile = new TimelineProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 1_000), Integer.getInteger("cost.requests", 5_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("timeline-jetty-" + version + ".csv");
+        Path histogramOutput = outputDir.resolve("timeline-histogram-jetty-" + version + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+             PrintWriter histogramWriter = new PrintWriter(Files.newBufferedWriter(histogramOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            histogramWriter.println(HISTOGRAM_CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    List<Timeline> timelines = profile.run(scenario, behavior);
+                    for (String line : toCsv(scenario, behavior, timelines))
+                    {
+                        System.out.println(line);
+                        writer.println(line);
+                    }
+                    toHistogramCsv(scenario, behavior, timelines).forEach(histogramWriter::println);
+                }
+                writer.flush();
+                histogramWriter.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+        System.out.println("Wrote " + histogramOutput);
+    }
+}
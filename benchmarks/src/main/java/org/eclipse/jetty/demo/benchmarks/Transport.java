@@ -0,0 +1,185 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.H2cJettySpecific;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.LocalClient;
+import org.eclipse.jetty.demo.common.RawHttpResponse;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+public enum Transport
+{
+    // ServerConnector and HttpClient, wire accurate
+    TCP
+    {
+        @Override
+        public Server newServer(JettySpecific jettySpecific)
+        {
+            return jettySpecific.newServer();
+        }
+
+        @Override
+        public ScenarioClient newClient(JettySpecific jettySpecific, Server server)
+        {
+            return new HttpScenarioClient(jettySpecific.newClient(), server.getURI().resolve("/toss/"));
+        }
+    },
+    // The same over h2c, every request is a stream multiplexed on the HttpClient connection.
+    // Only for the versions whose JettySpecific is an H2cJettySpecific.
+    H2C
+    {
+        @Override
+        public boolean supports(JettySpecific jettySpecific)
+        {
+            return jettySpecific instanceof H2cJettySpecific;
+        }
+
+        @Override
+        public Server newServer(JettySpecific jettySpecific)
+        {
+            return toH2c(jettySpecific).newH2cServer(null);
+        }
+
+        @Override
+        public ScenarioClient newClient(JettySpecific jettySpecific, Server server)
+        {
+            return new HttpScenarioClient(toH2c(jettySpecific).newH2cClient(), server.getURI().resolve("/toss/"));
+        }
+    },
+    // LocalConnector and raw in-memory requests, no sockets and no HttpClient.
+    // The server mostly handles the requests in the thread that sends them, so the
+    // server allocations show up on the client side of the ScenarioResult.
+    LOCAL
+    {
+        @Override
+        public Server newServer(JettySpecific jettySpecific)
+        {
+            return jettySpecific.newLocalServer();
+        }
+
+        @Override
+        public ScenarioClient newClient(JettySpecific jettySpecific, Server server)
+        {
+            return new LocalScenarioClient((LocalConnector)server.getConnectors()[0]);
+        }
+    };
+
+    public boolean supports(JettySpecific jettySpecific)
+    {
+        return true;
+    }
+
+    public abstract Server newServer(JettySpecific jettySpecific);
+
+    // The server must be started
+    public abstract ScenarioClient newClient(JettySpecific jettySpecific, Server server);
+
+    static H2cJettySpecific toH2c(JettySpecific jettySpecific)
+    {
+        if (!H2C.supports(jettySpecific))
+            throw new IllegalArgumentException("h2c is not built for Jetty " + ScenarioRunner.getJettyVersion());
+        return (H2cJettySpecific)jettySpecific;
+    }
+
+    public static class HttpScenarioClient implements ScenarioClient
+    {
+        private final HttpClient client;
+        private final URI tossURI;
+
+        public HttpScenarioClient(HttpClient client, URI tossURI)
+        {
+            this.client = client;
+            this.tossURI = tossURI;
+        }
+
+        public HttpClient getHttpClient()
+        {
+            return client;
+        }
+
+        @Override
+        public void start() throws Exception
+        {
+            client.start();
+        }
+
+        @Override
+        public void execute(ErrorScenario scenario) throws Exception
+        {
+            if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+            {
+                try
+                {
+                    client.newRequest(tossURI).method(HttpMethod.GET).send();
+                }
+                catch (ExecutionException expected)
+                {
+                    return;
+                }
+                throw new IllegalStateException("Expected " + scenario + " to abort the response");
+            }
+
+            ContentResponse response = client.GET(tossURI);
+            if (response.getStatus() != 301)
+                throw new IllegalStateException("Expected 301 from " + scenario + " but got " + response.getStatus());
+        }
+
+        @Override
+        public void stop() throws Exception
+        {
+            client.stop();
+        }
+
+        @Override
+        public String getThreadPoolName()
+        {
+            Executor executor = client.getExecutor();
+            return executor instanceof QueuedThreadPool ? ((QueuedThreadPool)executor).getName() : null;
+        }
+    }
+
+    public static class LocalScenarioClient implements ScenarioClient
+    {
+        private final LocalClient client;
+
+        public LocalScenarioClient(LocalConnector connector)
+        {
+            this.client = new LocalClient(connector);
+        }
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public void execute(ErrorScenario scenario) throws Exception
+        {
+            RawHttpResponse response = client.GET("/toss/");
+            if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+            {
+                if (response.isComplete())
+                    throw new IllegalStateException("Expected " + scenario + " to abort the response");
+                return;
+            }
+
+            if (!response.isComplete() || response.getStatus() != 301)
+                throw new IllegalStateException("Expected 301 from " + scenario + " but got " + response);
+        }
+
+        @Override
+        public void stop()
+        {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.RawHttpResponse;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.WireCapture;
+import org.eclipse.jetty.demo.common.WireClient;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// The scenarios as they look on the wire, from a WireClient sending one request after the other on a keep-alive
+// connection, reconnecting when the server closed it. Times are from the request written to the bytes read.
+// Writes <outputDir>/wire-jetty-<version>.csv with, per scenario and behavior:
+// - connects: connections opened for the requests
+// - ttfb, ttlb: time to the first byte and to the last byte of the response, aborted responses have no ttlb
+// - headersToContentP50Micros: from the read ending the headers to the first content byte, 0 when they came together
+// - readsPerResponse, headersAlone: responses whose headers came in a read of their own, ahead of the content
+// - chunksPerResponse, smallestChunk: the chunks framed on the wire, the terminal one excluded
+// - framing of the first response, and the complete and closed responses
+// - closeAfterLastByteP50Micros: when the server closed the connection after the last byte of the response
+// And <outputDir>/wire-trace-jetty-<version>.csv with every read, chunk and close of the first measured response.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.WireProfile [outputDir] [scenario...]
+public class WireProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,requests,connects,ttfbP50Micros,ttfbP99Micros," +
+        "ttlbP50Micros,ttlbP99Micros,headersToContentP50Micros,readsPerResponse,headersAlone,chunksPerResponse,smallestChunk," +
+        "framing,complete,closed,closeAfterLastByteP50Micros";
+    public static final String TRACE_CSV_HEADER = "version,scenario,behavior,event,micros,offset,size";
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+    // Of the last run
+    private int connects;
+
+    public WireProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific;
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    public List<WireCapture> run(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        server.setHandler(scenario.newHandler(jettySpecific.getConfig(), behavior));
+        try
+        {
+            server.start();
+            try (WireClient client = new WireClient(server.getURI()))
+            {
+                for (int i = 0; i < warmupRequests; i++)
+                {
+                    client.GET("/toss/");
+                }
+            }
+
+            List<WireCapture> captures = new ArrayList<>();
+            try (WireClient client = new WireClient(server.getURI()))
+            {
+                for (int i = 0; i < measuredRequests; i++)
+                {
+                    WireCapture capture = client.GET("/toss/");
+                    if (capture.isTimedOut())
+                        throw new IllegalStateException("No response from " + scenario + ": " + capture);
+                    captures.add(capture);
+                }
+                connects = client.getConnects();
+            }
+            return captures;
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    public String toCsv(ErrorScenario scenario, Behavior behavior, List<WireCapture> captures)
+    {
+        long[] ttfb = times(captures, WireCapture::getTimeToFirstByte);
+        long[] ttlb = times(captures, WireCapture::getTimeToLastByte);
+        long[] headersToContent = times(captures, capture -> capture.getTimeToFirstContent() < 0 ? -1 : capture.getTimeToFirstContent() - capture.getTimeToHeaders());
+        long[] closeAfterLastByte = times(captures, capture -> capture.isClosed() && capture.isComplete() ? capture.getTimeToClose() - capture.getTimeToLastByte() : -1);
+        long chunks = 0;
+        int smallestChunk = Integer.MAX_VALUE;
+        for (WireCapture capture : captures)
+        {
+            for (WireCapture.Chunk chunk : capture.getChunks())
+            {
+                if (chunk.getSize() > 0)
+                {
+                    chunks++;
+                    smallestChunk = Math.min(smallestChunk, chunk.getSize());
+                }
+            }
+        }
+
+        return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.2f,%d,%.2f,%d,%s,%d,%d,%.1f",
+            ScenarioRunner.getJettyVersion(), scenario, behavior, captures.size(), connects,
+            ScenarioRunner.percentile(ttfb, 0.50) / 1000D,
+            ScenarioRunner.percentile(ttfb, 0.99) / 1000D,
+            ScenarioRunner.percentile(ttlb, 0.50) / 1000D,
+            ScenarioRunner.percentile(ttlb, 0.99) / 1000D,
+            ScenarioRunner.percentile(headersToContent, 0.50) / 1000D,
+            captures.stream().mapToInt(capture -> capture.getReads().size()).average().orElse(0),
+            captures.stream().filter(WireCapture::isHeadersAlone).count(),
+            chunks / (double)Math.max(1, captures.size()),
+            smallestChunk == Integer.MAX_VALUE ? 0 : smallestChunk,
+            captures.isEmpty() ? "none" : framing(captures.get(0)),
+            captures.stream().filter(WireCapture::isComplete).count(),
+            captures.stream().filter(WireCapture::isClosed).count(),
+            ScenarioRunner.percentile(closeAfterLastByte, 0.50) / 1000D);
+    }
+
+    public static List<String> toTraceCsv(ErrorScenario scenario, Behavior behavior, WireCapture capture)
+    {
+        String prefix = String.format("%s,%s,%s,", ScenarioRunner.getJettyVersion(), scenario, behavior);
+        List<String> lines = new ArrayList<>();
+        for (WireCapture.Read read : capture.getReads())
+        {
+            lines.add(String.format(Locale.ROOT, "%sread,%.1f,%d,%d", prefix, read.getNanos() / 1000D, read.getOffset(), read.getSize()));
+        }
+        for (WireCapture.Chunk chunk : capture.getChunks())
+        {
+            lines.add(String.format(Locale.ROOT, "%schunk,%.1f,,%d", prefix, chunk.getNanos() / 1000D, chunk.getSize()));
+        }
+        if (capture.isClosed())
+            lines.add(String.format(Locale.ROOT, "%sclose,%.1f,%d,", prefix, capture.getTimeToClose() / 1000D, capture.getBytes()));
+        return lines;
+    }
+
+    private static String framing(WireCapture capture)
+    {
+        RawHttpResponse response = capture.getResponse();
+        String framing;
+        if (response.getHeaders().containsKey(HttpHeader.TRANSFER_ENCODING.asString()))
+            framing = "chunked";
+        else if (response.getHeaders().containsKey(HttpHeader.CONTENT_LENGTH.asString()))
+            framing = "content-length";
+        else
+            framing = "close";
+        return capture.isComplete() ? framing : framing + "-aborted";
+    }
+
+    // Sorted, the negative ones are left out
+    private static long[] times(List<WireCapture> captures, ToLongFunction<WireCapture> time)
+    {
+        return captures.stream().mapToLong(time).filter(nanos -> nanos >= 0).sorted().toArray();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/wire");
+        List<ErrorScenario> scenarios = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            scenarios.add(ErrorScenario.valueOf(args[i]));
+        }
+        if (scenarios.isEmpty())
+            scenarios.addAll(Arrays.asList(ErrorScenario.values()));
+
+        WireProfile profile = new WireProfile(JettySpecific.load(ServerConfig.fromSystemProperties()),
+            Integer.getInteger("cost.warmup", 1_000), Integer.getInteger("cost.requests", 5_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("wire-jetty-" + version + ".csv");
+        Path traceOutput = outputDir.resolve("wire-trace-jetty-" + version + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+             PrintWriter traceWriter = new PrintWriter(Files.newBufferedWriter(traceOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            traceWriter.println(TRACE_CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            for (ErrorScenario scenario : scenarios)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    List<WireCapture> captures = profile.run(scenario, behavior);
+                    String line = profile.toCsv(scenario, behavior, captures);
+                    System.out.println(line);
+                    writer.println(line);
+                    if (!captures.isEmpty())
+                        toTraceCsv(scenario, behavior, captures.get(0)).forEach(traceWriter::println);
+                }
+                writer.flush();
+                traceWriter.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+        System.out.println("Wrote " + traceOutput);
+    }
+}
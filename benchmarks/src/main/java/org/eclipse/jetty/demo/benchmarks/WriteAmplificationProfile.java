@@ -0,0 +1,201 @@
+package org.eclipse.jetty.demo.benchmarks;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.demo.common.ErrorScenario;
+import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.SizedScenario;
+import org.eclipse.jetty.demo.common.WriteCounter;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// How many socket writes each error response costs, from the WriteCounter that every JettySpecific puts on its
+// ServerConnector once its ServerConfig.withWriteCounting(true). A keep-alive HttpClient sends one request after
+// the other, so the flushes of the connector are those of the requests.
+// Besides the ErrorScenarios, SizedScenarios write around the HttpConfiguration sizes:
+// - an error page of 4 output buffers, in writes of 64 bytes, just below, at and just above the aggregation size,
+//   and of a whole output buffer
+// - sendError() after writes of 64 bytes adding up to just below and above the aggregation size, and just below the
+//   output buffer size, all of them reset by sendError()
+// Writes <outputDir>/write-amplification-jetty-<version>.csv with, per scenario and behavior:
+// - flushesPerRequest: EndPoint.flush() calls, each one a write or a gathering write to the socket
+// - buffersPerFlush, bytesPerFlush, bytesPerRequest
+// - emptyFlushesPerRequest, incompleteFlushesPerRequest: flushes writing nothing, and not writing everything
+// - smallFlushesPerRequest: flushes of less than 1KiB
+// - aborted: the requests that failed, as expected for the committed responses
+// And <outputDir>/write-histogram-jetty-<version>.csv with the flushes per power of two bytes, upperBytes being the
+// exclusive upper bound of the bucket.
+// java -cp benchmarks/target/benchmarks-jetty-<version>.jar org.eclipse.jetty.demo.benchmarks.WriteAmplificationProfile [outputDir]
+public class WriteAmplificationProfile
+{
+    public static final String CSV_HEADER = "version,scenario,behavior,requests,flushesPerRequest,buffersPerFlush,bytesPerFlush," +
+        "bytesPerRequest,emptyFlushesPerRequest,incompleteFlushesPerRequest,smallFlushesPerRequest,aborted";
+    public static final String HISTOGRAM_CSV_HEADER = "version,scenario,behavior,upperBytes,flushes";
+    // Flushes in the buckets under that are small
+    private static final int SMALL_BUCKETS = 11;
+
+    private final JettySpecific jettySpecific;
+    private final int warmupRequests;
+    private final int measuredRequests;
+
+    public WriteAmplificationProfile(JettySpecific jettySpecific, int warmupRequests, int measuredRequests)
+    {
+        this.jettySpecific = jettySpecific.withConfig(jettySpecific.getConfig().withWriteCounting(true));
+        this.warmupRequests = warmupRequests;
+        this.measuredRequests = measuredRequests;
+    }
+
+    // The CSV line, then the histogram lines
+    public List<String> run(String name, Function<Behavior, Handler> handlers, Behavior behavior) throws Exception
+    {
+        Server server = jettySpecific.newServer();
+        WriteCounter counter = server.getConnectors()[0].getBean(WriteCounter.class);
+        if (counter == null)
+            throw new IllegalStateException("No WriteCounter on " + server.getConnectors()[0]);
+        server.setHandler(handlers.apply(behavior));
+
+        HttpClient client = null;
+        try
+        {
+            server.start();
+            URI tossURI = server.getURI().resolve("/toss/");
+            client = jettySpecific.newClient();
+            client.start();
+
+            for (int i = 0; i < warmupRequests; i++)
+            {
+                send(client, tossURI);
+            }
+            counter.reset();
+            int aborted = 0;
+            for (int i = 0; i < measuredRequests; i++)
+            {
+                if (!send(client, tossURI))
+                    aborted++;
+            }
+
+            long small = 0;
+            for (int bucket = 1; bucket < SMALL_BUCKETS; bucket++)
+            {
+                small += counter.getFlushes(bucket);
+            }
+            double requests = measuredRequests;
+            double flushes = Math.max(1, counter.getFlushes());
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%.2f,%.2f,%.1f,%.1f,%.2f,%.2f,%.2f,%d",
+                ScenarioRunner.getJettyVersion(), name, behavior, measuredRequests,
+                counter.getFlushes() / requests,
+                counter.getBuffers() / flushes,
+                counter.getBytes() / flushes,
+                counter.getBytes() / requests,
+                counter.getEmptyFlushes() / requests,
+                counter.getIncompleteFlushes() / requests,
+                small / requests,
+                aborted));
+            for (int bucket = 0; bucket < counter.getBuckets(); bucket++)
+            {
+                if (counter.getFlushes(bucket) > 0)
+                    lines.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%d",
+                        ScenarioRunner.getJettyVersion(), name, behavior, 1L << bucket, counter.getFlushes(bucket)));
+            }
+            return lines;
+        }
+        finally
+        {
+            LifeCycle.stop(client);
+            LifeCycle.stop(server);
+        }
+    }
+
+    // False if the response was aborted
+    private static boolean send(HttpClient client, URI tossURI) throws Exception
+    {
+        try
+        {
+            client.newRequest(tossURI).send();
+            return true;
+        }
+        catch (ExecutionException x)
+        {
+            return false;
+        }
+    }
+
+    private static List<SizedScenario> sizedScenarios(ServerConfig config)
+    {
+        int aggregationSize = config.getOutputAggregationSize();
+        int bufferSize = config.getOutputBufferSize();
+        List<SizedScenario> scenarios = new ArrayList<>();
+        for (int writeSize : new int[]{64, aggregationSize - 1, aggregationSize, aggregationSize + 1, bufferSize})
+        {
+            scenarios.add(new SizedScenario(0, 4L * bufferSize, writeSize));
+        }
+        for (int preWriteSize : new int[]{aggregationSize - 1, aggregationSize + 1, bufferSize - 1})
+        {
+            scenarios.add(new SizedScenario(preWriteSize, 0, 64));
+        }
+        return scenarios;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path outputDir = Paths.get(args.length > 0 ? args[0] : "target/write-amplification");
+
+        JettySpecific jettySpecific = JettySpecific.load(ServerConfig.fromSystemProperties());
+        WriteAmplificationProfile profile = new WriteAmplificationProfile(jettySpecific,
+            Integer.getInteger("cost.warmup", 500), Integer.getInteger("cost.requests", 2_000));
+
+        Files.createDirectories(outputDir);
+        String version = ScenarioRunner.getJettyVersion();
+        Path output = outputDir.resolve("write-amplification-jetty-" + version + ".csv");
+        Path histogramOutput = outputDir.resolve("write-histogram-jetty-" + version + ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8));
+             PrintWriter histogramWriter = new PrintWriter(Files.newBufferedWriter(histogramOutput, StandardCharsets.UTF_8)))
+        {
+            writer.println(CSV_HEADER);
+            histogramWriter.println(HISTOGRAM_CSV_HEADER);
+            System.out.println(CSV_HEADER);
+            List<String> names = new ArrayList<>();
+            List<Function<Behavior, Handler>> handlers = new ArrayList<>();
+            for (ErrorScenario scenario : ErrorScenario.values())
+            {
+                names.add(scenario.name());
+                handlers.add(behavior -> scenario.newHandler(jettySpecific.getConfig(), behavior));
+            }
+            for (SizedScenario scenario : sizedScenarios(jettySpecific.getConfig()))
+            {
+                // No commas in the CSV
+                names.add(String.format("SIZED_PRE_%d_BODY_%d_WRITE_%d", scenario.getPreWriteSize(), scenario.getBodySize(), scenario.getWriteSize()));
+                handlers.add(behavior -> scenario.newHandler(jettySpecific.getConfig(), behavior));
+            }
+            for (int i = 0; i < names.size(); i++)
+            {
+                for (Behavior behavior : Behavior.values())
+                {
+                    List<String> lines = profile.run(names.get(i), handlers.get(i), behavior);
+                    System.out.println(lines.get(0));
+                    writer.println(lines.get(0));
+                    lines.subList(1, lines.size()).forEach(histogramWriter::println);
+                }
+                writer.flush();
+                histogramWriter.flush();
+            }
+        }
+        System.out.println("Wrote " + output);
+        System.out.println("Wrote " + histogramOutput);
+    }
+}
@@ -1,17 +1,26 @@
 package org.eclipse.jetty.demo.common;
 
-import java.util.Iterator;
-import java.util.ServiceLoader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.TestInfo;
 
 public abstract class AbstractCommonTest
 {
+    // Defaults for the server HttpConfiguration, the LARGE scenarios also size their writes from OUTPUT_BUFFER_SIZE
     public static final int OUTPUT_BUFFER_SIZE = 8 * 1024;
     public static final int OUTPUT_AGGREGATION_SIZE = OUTPUT_BUFFER_SIZE / 4;
 
+    private static final Map<Class<?>, ServerFixture> FIXTURES = new ConcurrentHashMap<>();
+    private final ServerConfig config = ServerConfig.fromSystemProperties();
+    private JettySpecific jettySpecific;
+
     public enum Behavior
     {
         PLAIN,
@@ -19,32 +28,75 @@ public abstract class AbstractCommonTest
         GZIP_EXTERNAL
     }
 
-    public GzipHandler newGzipHandler()
+    @AfterAll
+    public static void stopReusedServer(TestInfo testInfo)
+    {
+        testInfo.getTestClass().map(FIXTURES::remove).ifPresent(ServerFixture::stop);
+    }
+
+    public static GzipHandler newGzipHandler()
     {
         GzipHandler gzipHandler = new GzipHandler();
         gzipHandler.setMinGzipSize(10);
         return gzipHandler;
     }
 
+    // The -Djetty.demo.* properties the test is run with
+    public ServerConfig getConfig()
+    {
+        return config;
+    }
+
+    // The JettySpecific of the version under test, with getConfig()
+    public JettySpecific getJettySpecific()
+    {
+        if (jettySpecific == null)
+            jettySpecific = JettySpecific.load(config);
+        return jettySpecific;
+    }
+
     public Server newServer()
     {
         return getJettySpecific().newServer();
     }
 
+    public Server newLocalServer()
+    {
+        return getJettySpecific().newLocalServer();
+    }
+
     public HttpClient newClient()
     {
         return getJettySpecific().newClient();
     }
 
-    private static JettySpecific getJettySpecific()
+    public Server startServer(Handler handler) throws Exception
     {
-        Iterator<JettySpecific> iterJettySpecific = ServiceLoader.load(JettySpecific.class).iterator();
-        while (iterJettySpecific.hasNext())
+        if (config.isReuseServer())
         {
-            JettySpecific specific = iterJettySpecific.next();
-            if (specific != null)
-                return specific;
+            ServerFixture fixture = FIXTURES.get(getClass());
+            if (fixture == null)
+            {
+                fixture = new ServerFixture(newServer());
+                fixture.start();
+                FIXTURES.put(getClass(), fixture);
+            }
+            fixture.swapHandler(handler);
+            return fixture.getServer();
         }
-        throw new RuntimeException("Unable to find JettySpecific");
+
+        Server server = newServer();
+        server.setHandler(handler);
+        server.start();
+        return server;
+    }
+
+    public void stopServer(Server server)
+    {
+        ServerFixture fixture = FIXTURES.get(getClass());
+        if (fixture != null && fixture.getServer() == server)
+            fixture.swapHandler(null);
+        else
+            LifeCycle.stop(server);
     }
 }
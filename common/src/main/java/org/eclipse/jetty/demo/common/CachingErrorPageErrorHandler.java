@@ -0,0 +1,387 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHttpOutputInterceptor;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.StringUtil;
+
+// Dispatches to the error page once per (status, Location, Accept, Accept-Charset, Accept-Encoding),
+// then serves the captured body from a read-only ByteBuffer with a Content-Length.
+// Only suitable for error pages that depend on nothing but the key, like the MyErrorServlets,
+// the Location is part of the key because they echo it in the body.
+// With setPrecompress(true), the pages that the GzipHandler of the request would compress are compressed
+// once at render time, by the same rules, instead of on every response. GzipHandler only compresses the
+// 2xx statuses, so the 3xx and the error statuses are always served as they were rendered.
+public class CachingErrorPageErrorHandler extends ErrorPageErrorHandler
+{
+    private final Map<Key, Page> pages;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile boolean precompress;
+
+    public CachingErrorPageErrorHandler()
+    {
+        this(64);
+    }
+
+    public CachingErrorPageErrorHandler(int maxPages)
+    {
+        // Access ordered, so that the least recently served page is evicted first
+        this.pages = new LinkedHashMap<Key, Page>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Page> eldest)
+            {
+                if (size() <= maxPages)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public boolean isPrecompress()
+    {
+        return precompress;
+    }
+
+    public void setPrecompress(boolean precompress)
+    {
+        this.precompress = precompress;
+    }
+
+    @Override
+    public void doError(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        String errorPage = getErrorPage(request);
+        if (errorPage == null)
+        {
+            super.doError(target, baseRequest, request, response);
+            return;
+        }
+
+        GzipHandler gzipHandler = precompress ? getGzipHandler(baseRequest) : null;
+        boolean gzip = gzipHandler != null && isGzipInstalled(baseRequest) && acceptsGzip(baseRequest) && isGzipStatus(response.getStatus());
+        Key key = new Key(response.getStatus(), errorPage, response.getHeader(HttpHeader.LOCATION.asString()),
+            request.getHeader(HttpHeader.ACCEPT.asString()), request.getHeader(HttpHeader.ACCEPT_CHARSET.asString()), gzip);
+        Page page;
+        synchronized (pages)
+        {
+            page = pages.get(key);
+        }
+
+        if (page == null)
+        {
+            misses.incrementAndGet();
+            CapturingResponse capture = new CapturingResponse(response);
+            super.doError(target, baseRequest, request, capture);
+            // The dispatch failed or went async, the page is not complete and must not be cached
+            if (capture.getStatus() != key.status || request.isAsyncStarted())
+            {
+                capture.flushTo(response);
+                return;
+            }
+            byte[] body = capture.toByteArray();
+            String contentType = capture.getContentType();
+            page = new Page(contentType, capture.getHeader(HttpHeader.CACHE_CONTROL.asString()), body,
+                gzip && isGzipContent(gzipHandler, contentType, body.length));
+            synchronized (pages)
+            {
+                pages.put(key, page);
+            }
+        }
+        else
+        {
+            hits.incrementAndGet();
+            // As the dispatch to the error page would
+            baseRequest.getResponse().resetForForward();
+        }
+
+        page.write(baseRequest.getResponse(), response);
+        baseRequest.setHandled(true);
+    }
+
+    // The GzipHandler of the context, or the one wrapping it
+    private static GzipHandler getGzipHandler(Request baseRequest)
+    {
+        ContextHandler.Context context = baseRequest.getContext();
+        if (context != null && context.getContextHandler() instanceof ServletContextHandler)
+        {
+            GzipHandler gzipHandler = ((ServletContextHandler)context.getContextHandler()).getGzipHandler();
+            if (gzipHandler != null)
+                return gzipHandler;
+        }
+        return baseRequest.getHttpChannel().getServer().getChildHandlerByClass(GzipHandler.class);
+    }
+
+    // GzipHandler only installs its interceptor for the methods, paths and User-Agents it accepts
+    private static boolean isGzipInstalled(Request baseRequest)
+    {
+        HttpOutput.Interceptor interceptor = baseRequest.getResponse().getHttpOutput().getInterceptor();
+        while (interceptor != null)
+        {
+            if (interceptor instanceof GzipHttpOutputInterceptor)
+                return true;
+            interceptor = interceptor.getNextInterceptor();
+        }
+        return false;
+    }
+
+    // As GzipHandler.getDeflater(), HttpField.contains() skips the values with q=0
+    private static boolean acceptsGzip(Request baseRequest)
+    {
+        HttpField acceptEncoding = baseRequest.getHttpFields().getField(HttpHeader.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    // As GzipHttpOutputInterceptor.commit()
+    private static boolean isGzipStatus(int status)
+    {
+        return status >= 200 && status < 300 && status != HttpServletResponse.SC_NO_CONTENT && status != HttpServletResponse.SC_RESET_CONTENT;
+    }
+
+    private static boolean isGzipContent(GzipHandler gzipHandler, String contentType, int length)
+    {
+        if (length < gzipHandler.getMinGzipSize())
+            return false;
+        return contentType == null || gzipHandler.isMimeTypeGzipable(StringUtil.asciiToLowerCase(MimeTypes.getContentTypeWithoutCharset(contentType)));
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    public int getSize()
+    {
+        synchronized (pages)
+        {
+            return pages.size();
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (pages)
+        {
+            pages.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    private static class Key
+    {
+        private final int status;
+        private final String errorPage;
+        private final String location;
+        private final String accept;
+        private final String acceptCharset;
+        private final boolean gzip;
+        private final int hash;
+
+        private Key(int status, String errorPage, String location, String accept, String acceptCharset, boolean gzip)
+        {
+            this.status = status;
+            this.errorPage = errorPage;
+            this.location = location;
+            this.accept = accept;
+            this.acceptCharset = acceptCharset;
+            this.gzip = gzip;
+            this.hash = Objects.hash(status, errorPage, location, accept, acceptCharset, gzip);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key that = (Key)obj;
+            return status == that.status && gzip == that.gzip &&
+                Objects.equals(errorPage, that.errorPage) &&
+                Objects.equals(location, that.location) &&
+                Objects.equals(accept, that.accept) &&
+                Objects.equals(acceptCharset, that.acceptCharset);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    private static class Page
+    {
+        private final String contentType;
+        private final String cacheControl;
+        private final boolean gzip;
+        private final ByteBuffer body;
+
+        private Page(String contentType, String cacheControl, byte[] body, boolean gzip) throws IOException
+        {
+            this.contentType = contentType;
+            this.cacheControl = cacheControl;
+            this.gzip = gzip;
+            this.body = ByteBuffer.wrap(gzip ? gzip(body) : body).asReadOnlyBuffer();
+        }
+
+        private static byte[] gzip(byte[] body) throws IOException
+        {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed))
+            {
+                gzip.write(body);
+            }
+            return compressed.toByteArray();
+        }
+
+        private void write(Response baseResponse, HttpServletResponse response) throws IOException
+        {
+            if (contentType != null)
+                response.setContentType(contentType);
+            if (cacheControl != null)
+                response.setHeader(HttpHeader.CACHE_CONTROL.asString(), cacheControl);
+            if (gzip)
+            {
+                // GzipHandler leaves a response that already has a Content-Encoding alone
+                response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), "gzip");
+                response.addHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+            }
+            response.setContentLength(body.remaining());
+
+            // Straight to the HttpOutput, without choosing between the stream and the writer, so that an
+            // application writing after sendError is ignored just as with the dispatch to the error page.
+            // Each write gets its own view, the cached buffer position never moves
+            HttpOutput output = baseResponse.getHttpOutput();
+            output.write(body.duplicate());
+            output.close();
+        }
+    }
+
+    // Keeps what the error page writes, the headers still go to the wrapped response
+    private static class CapturingResponse extends HttpServletResponseWrapper
+    {
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CapturingResponse(HttpServletResponse response)
+        {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream()
+        {
+            if (outputStream == null)
+            {
+                outputStream = new ServletOutputStream()
+                {
+                    @Override
+                    public void write(int b)
+                    {
+                        content.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len)
+                    {
+                        content.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady()
+                    {
+                        return true;
+                    }
+
+                    // The captured body must be complete when the dispatch returns, to be cached
+                    @Override
+                    public void setWriteListener(WriteListener writeListener)
+                    {
+                        throw new IllegalStateException("Async writes are not supported by the error pages of " +
+                            CachingErrorPageErrorHandler.class.getSimpleName() + ", use an ErrorPageErrorHandler");
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter()
+        {
+            if (writer == null)
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer()
+        {
+            if (writer != null)
+                writer.flush();
+        }
+
+        @Override
+        public void resetBuffer()
+        {
+            if (writer != null)
+                writer.flush();
+            content.reset();
+        }
+
+        private byte[] toByteArray()
+        {
+            if (writer != null)
+                writer.flush();
+            return content.toByteArray();
+        }
+
+        private void flushTo(HttpServletResponse response) throws IOException
+        {
+            byte[] bytes = toByteArray();
+            if (bytes.length > 0)
+                response.getOutputStream().write(bytes);
+        }
+    }
+}
@@ -13,10 +13,6 @@ import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.handler.gzip.GzipHandler;
-import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
-import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,46 +42,12 @@ public class CommonAsyncContextSendErrorWriteRedirectBodyTest extends AbstractCo
     public void teardown()
     {
         LifeCycle.stop(client);
-        LifeCycle.stop(server);
+        stopServer(server);
     }
 
     public void startServer(Behavior behavior) throws Exception
     {
-        server = newServer();
-
-        ServletContextHandler contextHandler = new ServletContextHandler();
-        contextHandler.setContextPath("/");
-        ServletHolder tossHolder = contextHandler.addServlet(TossErrorServlet.class, "/toss/");
-        tossHolder.setAsyncSupported(true);
-        ServletHolder errorHolder = contextHandler.addServlet(MyErrorServlet.class, "/error/");
-        errorHolder.setAsyncSupported(true);
-
-        ErrorPageErrorHandler errorPageErrorHandler = new ErrorPageErrorHandler();
-        errorPageErrorHandler.addErrorPage(301, "/error/");
-        contextHandler.setErrorHandler(errorPageErrorHandler);
-
-        switch (behavior)
-        {
-            case PLAIN:
-                server.setHandler(contextHandler);
-                break;
-            case GZIP_EXTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                gzipHandler.setHandler(contextHandler);
-                server.setHandler(gzipHandler);
-                break;
-            }
-            case GZIP_INTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                contextHandler.setGzipHandler(gzipHandler);
-                server.setHandler(contextHandler);
-                break;
-            }
-        }
-
-        server.start();
+        server = startServer(ErrorScenario.ASYNC_CONTEXT_SEND_ERROR_WRITE.newHandler(getConfig(), behavior));
     }
 
     @ParameterizedTest
@@ -0,0 +1,162 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public abstract class CommonCachingErrorPageErrorHandlerTest extends AbstractCommonTest
+{
+    private Server server;
+    private LocalClient client;
+
+    @AfterEach
+    public void teardown()
+    {
+        if (client != null)
+            client.close();
+        LifeCycle.stop(server);
+    }
+
+    public void startServer(ErrorScenario scenario, Behavior behavior, CachingErrorPageErrorHandler errorHandler) throws Exception
+    {
+        server = newLocalServer();
+        server.setHandler(scenario.newHandler(getConfig(), behavior, newGzipHandler(), errorHandler));
+        server.start();
+        client = new LocalClient((LocalConnector)server.getConnectors()[0]);
+    }
+
+    public static Stream<Arguments> errorPageScenarios()
+    {
+        return Arrays.stream(ErrorScenario.values())
+            .filter(scenario -> scenario.getOutcome() == ErrorScenario.Outcome.ERROR_PAGE)
+            .flatMap(scenario -> Arrays.stream(Behavior.values()).map(behavior -> Arguments.of(scenario, behavior)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("errorPageScenarios")
+    public void testCachedPage(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        CachingErrorPageErrorHandler errorHandler = new CachingErrorPageErrorHandler();
+        startServer(scenario, behavior, errorHandler);
+
+        RawHttpResponse rendered = client.GET("/toss/");
+        RawHttpResponse cached = client.GET("/toss/");
+        assertThat("cached.status", cached.getStatus(), is(301));
+        assertThat("cached.body", cached.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+        assertThat("cached.body", cached.getContentAsString(), is(rendered.getContentAsString()));
+        assertThat("cached[content-type]", cached.getHeaders().get(HttpHeader.CONTENT_TYPE), is(rendered.getHeaders().get(HttpHeader.CONTENT_TYPE)));
+        assertThat("cached[content-encoding]", cached.getHeaders().get(HttpHeader.CONTENT_ENCODING), nullValue());
+        assertThat("misses", errorHandler.getMisses(), is(1L));
+        assertThat("hits", errorHandler.getHits(), is(1L));
+    }
+
+    // GzipHandler does not compress a 301, neither does the precompression
+    @ParameterizedTest
+    @MethodSource("errorPageScenarios")
+    public void testPrecompressedPage(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        CachingErrorPageErrorHandler errorHandler = new CachingErrorPageErrorHandler();
+        errorHandler.setPrecompress(true);
+        startServer(scenario, behavior, errorHandler);
+
+        for (int i = 0; i < 2; i++)
+        {
+            RawHttpResponse response = client.GET("/toss/");
+            assertThat("response.status", response.getStatus(), is(301));
+            assertThat("response[content-encoding]", response.getHeaders().get(HttpHeader.CONTENT_ENCODING), nullValue());
+            assertThat("response.body", response.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+        }
+        assertThat("hits", errorHandler.getHits(), is(1L));
+    }
+
+    // A status that GzipHandler compresses, as long as the request accepts it
+    @ParameterizedTest
+    @MethodSource("acceptEncodings")
+    public void testPrecompressedOkPage(Behavior behavior, String acceptEncoding, boolean precompress) throws Exception
+    {
+        CachingErrorPageErrorHandler errorHandler = new CachingErrorPageErrorHandler();
+        errorHandler.setPrecompress(precompress);
+        errorHandler.addErrorPage(203, "/error/");
+        ServletContextHandler contextHandler = new ServletContextHandler();
+        contextHandler.setContextPath("/");
+        contextHandler.addServlet(new ServletHolder(new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException
+            {
+                resp.sendError(203);
+            }
+        }), "/toss/");
+        contextHandler.addServlet(new ServletHolder(new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException
+            {
+                resp.setContentType("text/plain");
+                resp.getWriter().print("Non-Authoritative Information");
+            }
+        }), "/error/");
+        contextHandler.setErrorHandler(errorHandler);
+        server = newLocalServer();
+        server.setHandler(ErrorScenario.withBehavior(getConfig(), contextHandler, behavior, newGzipHandler()));
+        server.start();
+        client = new LocalClient((LocalConnector)server.getConnectors()[0]);
+
+        boolean gzip = behavior != Behavior.PLAIN && acceptEncoding.equals("gzip");
+        for (int i = 0; i < 2; i++)
+        {
+            RawHttpResponse response = client.GET("/toss/", acceptEncoding);
+            assertThat("response.status", response.getStatus(), is(203));
+            assertThat("response[content-encoding]", response.getHeaders().get(HttpHeader.CONTENT_ENCODING), is(gzip ? "gzip" : null));
+            assertThat("response.body", response.getContentAsString(), is("Non-Authoritative Information"));
+            // The precompressed body has a Content-Length, GzipHandler itself may or may not set one, depending on the version
+            if (gzip && precompress)
+                assertThat("response[content-length]", response.getHeaders().containsKey(HttpHeader.CONTENT_LENGTH.asString()), is(true));
+        }
+        assertThat("hits", errorHandler.getHits(), is(1L));
+    }
+
+    public static Stream<Arguments> acceptEncodings()
+    {
+        return Arrays.stream(Behavior.values())
+            .flatMap(behavior -> Stream.of("gzip", "gzip;q=0", "identity")
+                .flatMap(acceptEncoding -> Stream.of(Arguments.of(behavior, acceptEncoding, true), Arguments.of(behavior, acceptEncoding, false))));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Behavior.class)
+    public void testBoundedCache(Behavior behavior) throws Exception
+    {
+        CachingErrorPageErrorHandler errorHandler = new CachingErrorPageErrorHandler(0);
+        startServer(ErrorScenario.SEND_ERROR, behavior, errorHandler);
+
+        for (int i = 0; i < 2; i++)
+        {
+            RawHttpResponse response = client.GET("/toss/");
+            assertThat("response.body", response.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+        }
+        assertThat("misses", errorHandler.getMisses(), is(2L));
+        assertThat("evictions", errorHandler.getEvictions(), is(2L));
+        assertThat("size", errorHandler.getSize(), is(0));
+    }
+}
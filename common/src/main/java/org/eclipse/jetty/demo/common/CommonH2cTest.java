@@ -0,0 +1,85 @@
+package org.eclipse.jetty.demo.common;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Every scenario over h2c: the same outcome as over HTTP/1.1, and the connection survives it,
+// an aborted response only resets its own stream.
+// Only extended by the versions whose JettySpecific is an H2cJettySpecific.
+public abstract class CommonH2cTest extends AbstractCommonTest
+{
+    private Server server;
+    private HttpClient client;
+
+    private H2cJettySpecific getH2cJettySpecific()
+    {
+        return (H2cJettySpecific)getJettySpecific();
+    }
+
+    public static Stream<Arguments> scenarios()
+    {
+        return Arrays.stream(ErrorScenario.values())
+            .flatMap(scenario -> Arrays.stream(Behavior.values()).map(behavior -> Arguments.of(scenario, behavior)));
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(client);
+        LifeCycle.stop(server);
+    }
+
+    @ParameterizedTest
+    @MethodSource("scenarios")
+    public void testOutcome(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        server = getH2cJettySpecific().newH2cServer(null);
+        server.setHandler(scenario.newHandler(getConfig(), behavior));
+        server.start();
+        client = getH2cJettySpecific().newH2cClient();
+        // On the client, the server counts the HTTP/1.1 connection upgraded to h2c as well
+        ConnectionStatistics connectionStatistics = new ConnectionStatistics();
+        client.addBean(connectionStatistics);
+        client.start();
+        URI tossURI = server.getURI().resolve("/toss/");
+
+        for (int i = 0; i < 2; i++)
+        {
+            if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+            {
+                assertThrows(ExecutionException.class, () -> client.newRequest(tossURI).method(HttpMethod.GET).send());
+                continue;
+            }
+
+            ContentResponse response = client.newRequest(tossURI).method(HttpMethod.GET).send();
+            assertThat("response.version", response.getVersion(), is(HttpVersion.HTTP_2));
+            assertThat("response.status", response.getStatus(), is(301));
+            if (scenario.getOutcome() == ErrorScenario.Outcome.ERROR_PAGE)
+                assertThat("response.body", response.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+            else
+                assertThat("response.body", response.getContentAsString(), not(containsString("Not here, go there: ")));
+        }
+
+        assertThat("connections", connectionStatistics.getConnectionsTotal(), is(1L));
+    }
+}
@@ -0,0 +1,159 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public abstract class CommonLazyHandlerTest extends AbstractCommonTest
+{
+    private Server server;
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(server);
+    }
+
+    public static Stream<Arguments> completedScenarios()
+    {
+        return Arrays.stream(ErrorScenario.values())
+            .filter(scenario -> scenario.getOutcome() != ErrorScenario.Outcome.ABORTED)
+            .flatMap(scenario -> Arrays.stream(Behavior.values()).map(behavior -> Arguments.of(scenario, behavior)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("completedScenarios")
+    public void testFirstRequestCreatesHandler(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        LazyHandler lazyHandler = scenario.newLazyHandler(getConfig(), behavior);
+        server = newLocalServer();
+        server.setHandler(lazyHandler);
+        server.start();
+        assertThat("initialized after start", lazyHandler.isInitialized(), is(false));
+        assertThat("context after start", server.getChildHandlerByClass(ServletContextHandler.class), nullValue());
+
+        try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+        {
+            RawHttpResponse response = client.GET("/toss/");
+            assertThat("response.status", response.getStatus(), is(301));
+            if (scenario.getOutcome() == ErrorScenario.Outcome.ERROR_PAGE)
+                assertThat("response.body", response.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+        }
+        Handler handler = lazyHandler.getHandler();
+        assertThat("handler", handler, notNullValue());
+        assertThat("handler.started", handler.isStarted(), is(true));
+        assertThat("context", server.getChildHandlerByClass(ServletContextHandler.class), notNullValue());
+
+        server.stop();
+        assertThat("handler.stopped", handler.isStopped(), is(true));
+        assertThat("initialized after stop", lazyHandler.isInitialized(), is(false));
+    }
+
+    @Test
+    public void testConcurrentFirstRequestsCreateOneHandler() throws Exception
+    {
+        AtomicInteger created = new AtomicInteger();
+        LazyHandler lazyHandler = new LazyHandler(() ->
+        {
+            created.incrementAndGet();
+            return ErrorScenario.SEND_ERROR.newHandler(getConfig(), Behavior.PLAIN);
+        });
+        server = newLocalServer();
+        server.setHandler(lazyHandler);
+        server.start();
+        LocalConnector connector = (LocalConnector)server.getConnectors()[0];
+
+        int clients = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try
+        {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<RawHttpResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < clients; i++)
+            {
+                responses.add(executor.submit(() ->
+                {
+                    try (LocalClient client = new LocalClient(connector))
+                    {
+                        go.await();
+                        return client.GET("/toss/");
+                    }
+                }));
+            }
+            go.countDown();
+            for (Future<RawHttpResponse> response : responses)
+            {
+                assertThat("response.status", response.get(10, TimeUnit.SECONDS).getStatus(), is(301));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertThat("created", created.get(), is(1));
+    }
+
+    @Test
+    public void testFailedStartIsRetried() throws Exception
+    {
+        AtomicInteger created = new AtomicInteger();
+        LazyHandler lazyHandler = new LazyHandler(() ->
+        {
+            if (created.incrementAndGet() == 1)
+                return new FailingHandler();
+            return ErrorScenario.SEND_ERROR.newContextHandler(getConfig());
+        });
+        server = newLocalServer();
+        server.setHandler(lazyHandler);
+        server.start();
+
+        try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+        {
+            assertThat("failed.status", client.GET("/toss/").getStatus(), is(500));
+            assertThat("retried.status", client.GET("/toss/").getStatus(), is(301));
+        }
+        assertThat("created", created.get(), is(2));
+    }
+
+    public static class FailingHandler extends AbstractHandler
+    {
+        @Override
+        protected void doStart() throws Exception
+        {
+            throw new IllegalStateException("Failing on purpose");
+        }
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+        {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public abstract class CommonLocalConnectorTest extends AbstractCommonTest
+{
+    private Server server;
+    private LocalClient client;
+
+    @AfterEach
+    public void teardown()
+    {
+        if (client != null)
+            client.close();
+        LifeCycle.stop(server);
+    }
+
+    public void startServer(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        server = newLocalServer();
+        server.setHandler(scenario.newHandler(getConfig(), behavior));
+        server.start();
+        client = new LocalClient((LocalConnector)server.getConnectors()[0]);
+    }
+
+    public static Stream<Arguments> scenarios()
+    {
+        return Arrays.stream(ErrorScenario.values())
+            .flatMap(scenario -> Arrays.stream(Behavior.values()).map(behavior -> Arguments.of(scenario, behavior)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scenarios")
+    public void testRedirect(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        startServer(scenario, behavior);
+
+        // Twice, to go through the same endpoint when it is kept alive
+        for (int i = 0; i < 2; i++)
+        {
+            RawHttpResponse response = client.GET("/toss/");
+            switch (scenario.getOutcome())
+            {
+                case ERROR_PAGE:
+                    assertThat("response.complete", response.isComplete(), is(true));
+                    assertThat("response.status", response.getStatus(), is(301));
+                    assertThat("response.body", response.getContentAsString(), containsString("Not here, go there: https://webtide.com/"));
+                    break;
+                case REDIRECT_ONLY:
+                    assertThat("response.complete", response.isComplete(), is(true));
+                    assertThat("response.status", response.getStatus(), is(301));
+                    assertThat("response.body", response.getContentAsString(), not(containsString("Not here, go there: https://webtide.com/")));
+                    break;
+                case ABORTED:
+                    assertThat("response.complete", response.isComplete(), is(false));
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ErrorHandler;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The PreEncodedErrorHandler must produce the same responses as the dispatch to the MyErrorServlets
+public abstract class CommonPreEncodedErrorHandlerTest extends AbstractCommonTest
+{
+    public static Stream<Arguments> scenarios()
+    {
+        return Arrays.stream(ErrorScenario.values())
+            .flatMap(scenario -> Arrays.stream(Behavior.values()).map(behavior -> Arguments.of(scenario, behavior)));
+    }
+
+    private RawHttpResponse GET(ErrorScenario scenario, Behavior behavior, ErrorHandler errorHandler) throws Exception
+    {
+        Server server = newLocalServer();
+        server.setHandler(scenario.newHandler(getConfig(), behavior, newGzipHandler(), errorHandler));
+        try
+        {
+            server.start();
+            try (LocalClient client = new LocalClient((LocalConnector)server.getConnectors()[0]))
+            {
+                return client.GET("/toss/");
+            }
+        }
+        finally
+        {
+            LifeCycle.stop(server);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("scenarios")
+    public void testSameAsDispatch(ErrorScenario scenario, Behavior behavior) throws Exception
+    {
+        RawHttpResponse dispatched = GET(scenario, behavior, new ErrorPageErrorHandler());
+        RawHttpResponse preEncoded = GET(scenario, behavior, scenario.newPreEncodedErrorHandler());
+
+        assertThat("response.complete", preEncoded.isComplete(), is(dispatched.isComplete()));
+        assertThat("response.status", preEncoded.getStatus(), is(dispatched.getStatus()));
+        if (!dispatched.isComplete())
+            return;
+        // No sendError, the ErrorHandler is not involved and the headers race with the AsyncContext thread
+        if (scenario.getOutcome() == ErrorScenario.Outcome.REDIRECT_ONLY)
+            return;
+        assertThat("response.body", preEncoded.getContentAsString(), is(dispatched.getContentAsString()));
+        for (HttpHeader header : Arrays.asList(HttpHeader.CONTENT_TYPE, HttpHeader.CONTENT_LENGTH, HttpHeader.TRANSFER_ENCODING, HttpHeader.CONTENT_ENCODING))
+        {
+            assertThat("response[" + header + "]", preEncoded.getHeaders().get(header), is(dispatched.getHeaders().get(header)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 600, 1000})
+    public void testSetErrorBodyRejectsStatusOutOfRange(int status)
+    {
+        PreEncodedErrorHandler errorHandler = new PreEncodedErrorHandler();
+        IllegalArgumentException x = assertThrows(IllegalArgumentException.class,
+            () -> errorHandler.setErrorBody(status, "text/html", "Not here, go there: ", ""));
+        assertThat(x.getMessage(), containsString(String.valueOf(status)));
+    }
+}
@@ -2,19 +2,21 @@ package org.eclipse.jetty.demo.common;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.handler.gzip.GzipHandler;
-import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
-import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,13 +24,14 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 public abstract class CommonSendErrorRedirectBodyLargeTest extends AbstractCommonTest
 {
-    private static final int OUTPUT_BUFFER_COUNT = 5;
-    private static final int OUTPUT_BUFFER_WRITE_SIZE = OUTPUT_BUFFER_SIZE / (OUTPUT_BUFFER_COUNT - 1);
+    static final int OUTPUT_BUFFER_COUNT = 5;
+    static final int OUTPUT_BUFFER_WRITE_SIZE = OUTPUT_BUFFER_SIZE / (OUTPUT_BUFFER_COUNT - 1);
 
     private Server server;
     private HttpClient client;
@@ -44,44 +47,12 @@ public abstract class CommonSendErrorRedirectBodyLargeTest extends AbstractCommo
     public void teardown()
     {
         LifeCycle.stop(client);
-        LifeCycle.stop(server);
+        stopServer(server);
     }
 
     public void startServer(Behavior behavior) throws Exception
     {
-        server = newServer();
-
-        ServletContextHandler contextHandler = new ServletContextHandler();
-        contextHandler.setContextPath("/");
-        contextHandler.addServlet(TossErrorServlet.class, "/toss/");
-        contextHandler.addServlet(MyErrorServlet.class, "/error/");
-
-        ErrorPageErrorHandler errorPageErrorHandler = new ErrorPageErrorHandler();
-        errorPageErrorHandler.addErrorPage(301, "/error/");
-        contextHandler.setErrorHandler(errorPageErrorHandler);
-
-        switch (behavior)
-        {
-            case PLAIN:
-                server.setHandler(contextHandler);
-                break;
-            case GZIP_EXTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                gzipHandler.setHandler(contextHandler);
-                server.setHandler(gzipHandler);
-                break;
-            }
-            case GZIP_INTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                contextHandler.setGzipHandler(gzipHandler);
-                server.setHandler(contextHandler);
-                break;
-            }
-        }
-
-        server.start();
+        server = startServer(ErrorScenario.SEND_ERROR_LARGE.newHandler(getConfig(), behavior));
     }
 
     @ParameterizedTest
@@ -89,18 +60,25 @@ public abstract class CommonSendErrorRedirectBodyLargeTest extends AbstractCommo
     public void testRedirect(Behavior behavior) throws Exception
     {
         startServer(behavior);
-        ContentResponse response = client.GET(server.getURI().resolve("/toss/"));
-        assertThat("response.status", response.getStatus(), is(301));
-        assertThat("response[transfer-encoding]", response.getHeaders().get(HttpHeader.TRANSFER_ENCODING), is("chunked"));
-        String responseBody = response.getContentAsString();
-        assertThat("response.body", responseBody, containsString("Not here, go there: https://webtide.com/"));
 
+        // Checked in a single pass as the body arrives, without buffering it
+        List<String> fragments = new ArrayList<>();
+        fragments.add("Not here, go there: https://webtide.com/");
         for (int i = 0; i <= OUTPUT_BUFFER_COUNT; i++)
         {
             char[] buf = new char[OUTPUT_BUFFER_WRITE_SIZE];
             Arrays.fill(buf, (char)('a' + i));
-            assertThat("response.body", responseBody, containsString(new String(buf)));
+            fragments.add(new String(buf));
         }
+        StreamingBodyVerifier verifier = new StreamingBodyVerifier(StandardCharsets.UTF_8, fragments);
+        client.newRequest(server.getURI().resolve("/toss/")).send(verifier);
+        Result result = verifier.await(30, TimeUnit.SECONDS);
+        assertThat("response.failure", result.getFailure(), is(nullValue()));
+
+        Response response = result.getResponse();
+        assertThat("response.status", response.getStatus(), is(301));
+        assertThat("response[transfer-encoding]", response.getHeaders().get(HttpHeader.TRANSFER_ENCODING), is("chunked"));
+        assertThat("response.body " + verifier, verifier.getMissing(), is(empty()));
     }
 
     public static class TossErrorServlet extends HttpServlet
@@ -10,9 +10,6 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.handler.gzip.GzipHandler;
-import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
-import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,44 +36,12 @@ public abstract class CommonSendErrorRedirectBodyTest extends AbstractCommonTest
     public void teardown()
     {
         LifeCycle.stop(client);
-        LifeCycle.stop(server);
+        stopServer(server);
     }
 
     public void startServer(Behavior behavior) throws Exception
     {
-        server = newServer();
-
-        ServletContextHandler contextHandler = new ServletContextHandler();
-        contextHandler.setContextPath("/");
-        contextHandler.addServlet(TossErrorServlet.class, "/toss/");
-        contextHandler.addServlet(MyErrorServlet.class, "/error/");
-
-        ErrorPageErrorHandler errorPageErrorHandler = new ErrorPageErrorHandler();
-        errorPageErrorHandler.addErrorPage(301, "/error/");
-        contextHandler.setErrorHandler(errorPageErrorHandler);
-
-        switch (behavior)
-        {
-            case PLAIN:
-                server.setHandler(contextHandler);
-                break;
-            case GZIP_EXTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                gzipHandler.setHandler(contextHandler);
-                server.setHandler(gzipHandler);
-                break;
-            }
-            case GZIP_INTERNAL:
-            {
-                GzipHandler gzipHandler = newGzipHandler();
-                contextHandler.setGzipHandler(gzipHandler);
-                server.setHandler(contextHandler);
-                break;
-            }
-        }
-
-        server.start();
+        server = startServer(ErrorScenario.SEND_ERROR.newHandler(getConfig(), behavior));
     }
 
     @ParameterizedTest
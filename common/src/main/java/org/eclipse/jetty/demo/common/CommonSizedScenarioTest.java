@@ -0,0 +1,77 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+// The SizedScenario on both sides of the output buffer, with the outcomes of the fixed size scenarios
+public abstract class CommonSizedScenarioTest extends AbstractCommonTest
+{
+    private Server server;
+    private HttpClient client;
+
+    public static Stream<Arguments> sizes()
+    {
+        return Stream.of(
+            // SEND_ERROR
+            Arguments.of(0, 0, false, false),
+            // SEND_ERROR_LARGE
+            Arguments.of(0, 4 * OUTPUT_BUFFER_SIZE, false, true),
+            // WRITE_SEND_ERROR, the write is reset by sendError
+            Arguments.of(OUTPUT_BUFFER_SIZE / 2, 0, false, false),
+            // WRITE_LARGE_SEND_ERROR, the write commits the response
+            Arguments.of(2 * OUTPUT_BUFFER_SIZE, 0, true, false)
+        );
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(client);
+        stopServer(server);
+    }
+
+    @ParameterizedTest
+    @MethodSource("sizes")
+    public void testOutcome(int preWriteSize, int bodySize, boolean aborted, boolean chunked) throws Exception
+    {
+        SizedScenario scenario = new SizedScenario(preWriteSize, bodySize);
+        server = startServer(scenario.newHandler(getConfig(), Behavior.PLAIN, newGzipHandler()));
+        client = newClient();
+        client.start();
+
+        StreamingBodyVerifier verifier = new StreamingBodyVerifier(StandardCharsets.UTF_8, scenario.getExpectedFragments());
+        client.newRequest(server.getURI().resolve("/toss/")).send(verifier);
+        Result result = verifier.await(30, TimeUnit.SECONDS);
+
+        if (aborted)
+        {
+            assertThat("response.failure", result.getFailure(), is(notNullValue()));
+            return;
+        }
+        assertThat("response.failure", result.getFailure(), is(nullValue()));
+        Response response = result.getResponse();
+        assertThat("response.status", response.getStatus(), is(301));
+        assertThat("response.body " + verifier, verifier.getMissing(), is(empty()));
+        assertThat("response.body", verifier.getContentBytes(), greaterThanOrEqualTo((long)bodySize));
+        assertThat("response[transfer-encoding]", response.getHeaders().get(HttpHeader.TRANSFER_ENCODING), is(chunked ? "chunked" : null));
+    }
+}
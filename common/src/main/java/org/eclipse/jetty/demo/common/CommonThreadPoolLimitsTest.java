@@ -0,0 +1,143 @@
+package org.eclipse.jetty.demo.common;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public abstract class CommonThreadPoolLimitsTest extends AbstractCommonTest
+{
+    private Server server;
+    private HttpClient client;
+    private CountingThreadPool threadPool;
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(client);
+        LifeCycle.stop(server);
+        LifeCycle.stop(threadPool);
+    }
+
+    @Test
+    public void testLimitsAreApplied() throws Exception
+    {
+        server = getJettySpecific().newLimitedServer(new ThreadPoolLimits(32, 3, 64));
+        server.setHandler(ErrorScenario.SEND_ERROR.newHandler(getConfig(), Behavior.PLAIN));
+        server.start();
+
+        assertThat(server.getThreadPool(), instanceOf(CountingThreadPool.class));
+        assertThat(((CountingThreadPool)server.getThreadPool()).getMaxThreads(), is(32));
+        // In the SelectorManager on 9.4.8, in the QueuedThreadPool since 9.4.25
+        Collection<ReservedThreadExecutor> reservedThreadExecutors = server.getContainedBeans(ReservedThreadExecutor.class);
+        assertThat("reserved thread executors", reservedThreadExecutors.isEmpty(), is(false));
+        for (ReservedThreadExecutor reservedThreadExecutor : reservedThreadExecutors)
+        {
+            assertThat("capacity " + reservedThreadExecutor, reservedThreadExecutor.getCapacity(), is(3));
+        }
+    }
+
+    @Test
+    public void testFullQueueRejects() throws Exception
+    {
+        // Without a server, so that no selector or acceptor holds a thread
+        threadPool = new ThreadPoolLimits(4, 0, 2).newThreadPool();
+        threadPool.start();
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++)
+        {
+            CountDownLatch started = new CountDownLatch(1);
+            threadPool.execute(() ->
+            {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+        AtomicLong queueDelays = new AtomicLong();
+        threadPool.setQueueDelayListener(nanos -> queueDelays.incrementAndGet());
+        CountDownLatch ran = new CountDownLatch(2);
+        threadPool.execute(ran::countDown);
+        threadPool.execute(ran::countDown);
+        assertThat(threadPool.getQueueSize(), is(2));
+
+        assertThrows(RejectedExecutionException.class, () -> threadPool.execute(ran::countDown));
+        assertThat(threadPool.getRejected(), is(1L));
+        assertThat(threadPool.getExecuted(), is(6L));
+        assertThat(threadPool.getPeakQueueSize(), is(2L));
+
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertThat(queueDelays.get(), is(2L));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ErrorScenario.class, names = {"SEND_ERROR", "ASYNC_CONTEXT_SEND_ERROR_WRITE"})
+    public void testSaturatedPoolCompletesEveryRequest(ErrorScenario scenario) throws Exception
+    {
+        // Enough threads for the acceptors and selectors of any number of cores, and a few more
+        server = getJettySpecific().newLimitedServer(new ThreadPoolLimits(12, 0, -1));
+        server.setHandler(scenario.newHandler(getConfig(), Behavior.PLAIN));
+        server.start();
+        CountingThreadPool serverThreadPool = (CountingThreadPool)server.getThreadPool();
+        AtomicLong queueDelays = new AtomicLong();
+        serverThreadPool.setQueueDelayListener(nanos -> queueDelays.incrementAndGet());
+        client = newClient();
+        client.start();
+
+        URI tossURI = server.getURI().resolve("/toss/");
+        List<CompletableFuture<Integer>> statuses = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            CompletableFuture<Integer> status = new CompletableFuture<>();
+            client.newRequest(tossURI).send(result ->
+            {
+                if (result.isFailed())
+                    status.completeExceptionally(result.getFailure());
+                else
+                    status.complete(result.getResponse().getStatus());
+            });
+            statuses.add(status);
+        }
+        for (CompletableFuture<Integer> status : statuses)
+        {
+            assertThat(status.get(10, TimeUnit.SECONDS), is(301));
+        }
+        assertThat(serverThreadPool.getRejected(), is(0L));
+        assertThat(queueDelays.get(), greaterThan(0L));
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException x)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.demo.common.TimelineRecorder.Event;
+import org.eclipse.jetty.demo.common.TimelineRecorder.Timeline;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public abstract class CommonTimelineRecorderTest extends AbstractCommonTest
+{
+    private Server server;
+    private HttpClient client;
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(client);
+        stopServer(server);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ErrorScenario.class, names = {"SEND_ERROR", "SEND_ERROR_LARGE", "WRITE_LARGE_SEND_ERROR"})
+    public void testTimeline(ErrorScenario scenario) throws Exception
+    {
+        // The timeline asserts the error dispatch, that a PreEncodedErrorHandler skips
+        ServerConfig config = getConfig().withTimeline(true).withPreEncodedErrorHandler(false);
+        server = getJettySpecific().withConfig(config).newServer();
+        TimelineRecorder recorder = server.getConnectors()[0].getBean(TimelineRecorder.class);
+        server.setHandler(scenario.newHandler(config, Behavior.PLAIN));
+        server.start();
+        client = newClient();
+        client.start();
+
+        try
+        {
+            client.GET(server.getURI().resolve("/toss/"));
+        }
+        catch (ExecutionException x)
+        {
+            assertThat("aborted", scenario.getOutcome(), is(ErrorScenario.Outcome.ABORTED));
+        }
+
+        // The channel completes after the client got the response
+        List<Timeline> timelines = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (timelines.isEmpty() && System.nanoTime() < deadline)
+        {
+            timelines.addAll(recorder.drain());
+            Thread.sleep(10);
+        }
+        assertThat("timelines", timelines, hasSize(1));
+        Timeline timeline = timelines.get(0);
+
+        assertThat("contents " + timeline, timeline.getContents(), greaterThan(0));
+        if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+        {
+            // The large write committed the response, 9.4.8 throws from sendError() before setting the error attributes
+            assertInOrder(timeline, Event.BEGIN, Event.HANDLE, Event.COMMIT, Event.FAILURE, Event.COMPLETE);
+        }
+        else
+        {
+            assertInOrder(timeline, Event.BEGIN, Event.HANDLE, Event.SEND_ERROR, Event.ERROR_DISPATCH_BEGIN, Event.ERROR_DISPATCH_END, Event.COMPLETE);
+            assertInOrder(timeline, Event.ERROR_DISPATCH_BEGIN, Event.COMMIT, Event.RESPONSE_END, Event.COMPLETE);
+        }
+    }
+
+    private static void assertInOrder(Timeline timeline, Event... events)
+    {
+        for (int i = 0; i < events.length; i++)
+        {
+            assertThat(events[i] + " " + timeline, timeline.has(events[i]), is(true));
+            if (i > 0)
+                assertThat(events[i] + " after " + events[i - 1] + " " + timeline, timeline.getNanos(events[i]), greaterThanOrEqualTo(timeline.getNanos(events[i - 1])));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+public abstract class CommonWriteCounterTest extends AbstractCommonTest
+{
+    private Server server;
+    private WireClient client;
+
+    @AfterEach
+    public void teardown() throws Exception
+    {
+        if (client != null)
+            client.close();
+        stopServer(server);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ErrorScenario.class)
+    public void testCountedBytesAreOnTheWire(ErrorScenario scenario) throws Exception
+    {
+        ServerConfig config = getConfig().withWriteCounting(true);
+        server = getJettySpecific().withConfig(config).newServer();
+        server.setHandler(scenario.newHandler(config, Behavior.PLAIN));
+        server.start();
+        WriteCounter counter = server.getConnectors()[0].getBean(WriteCounter.class);
+        client = new WireClient(server.getURI());
+
+        WireCapture capture = client.GET("/toss/");
+
+        // The flush is counted once it returned, the client can read the bytes before that
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.getBytes() < capture.getBytes() && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertThat("flushes " + counter, counter.getFlushes(), greaterThan(0L));
+        assertThat("buffers " + counter, counter.getBuffers(), greaterThanOrEqualTo(counter.getFlushes()));
+        long bucketed = 0;
+        for (int bucket = 0; bucket < counter.getBuckets(); bucket++)
+        {
+            bucketed += counter.getFlushes(bucket);
+        }
+        assertThat("bucketed " + counter, bucketed, is(counter.getFlushes()));
+        if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+            assertThat("bytes " + counter + " " + capture, counter.getBytes(), greaterThanOrEqualTo(capture.getBytes()));
+        else
+            assertThat("bytes " + counter + " " + capture, counter.getBytes(), is(capture.getBytes()));
+    }
+}
@@ -0,0 +1,171 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+
+// Counts the buffers acquired from and released to a ByteBufferPool: direct and heap, and by capacity, power of two.
+// The outstanding ones are acquired and not released yet: held by the connections and the responses in flight,
+// or leaked when they keep growing. Their peak is the pooled memory the requests pinned at most.
+// reset() starts the counts and the peaks over, not the outstanding buffers.
+// Jetty may release buffers that it did not acquire from the pool, so the outstanding counts can go below 0.
+public class CountingByteBufferPool implements ByteBufferPool
+{
+    private final ByteBufferPool delegate;
+    private final AtomicLong acquires = new AtomicLong();
+    private final AtomicLong directAcquires = new AtomicLong();
+    private final AtomicLong acquiredBytes = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+    private final AtomicLong peakOutstanding = new AtomicLong();
+    private final AtomicLong peakOutstandingBytes = new AtomicLong();
+    // Bucket n counts the acquires of [2^(n-1), 2^n) bytes of capacity, bucket 0 the empty ones
+    private final AtomicLongArray capacities = new AtomicLongArray(32);
+
+    public enum Type
+    {
+        // The default of the 9.4 ServerConnector
+        ARRAY,
+        MAPPED;
+
+        public ByteBufferPool newByteBufferPool()
+        {
+            return this == MAPPED ? new MappedByteBufferPool() : new ArrayByteBufferPool();
+        }
+    }
+
+    public CountingByteBufferPool()
+    {
+        this(new ArrayByteBufferPool());
+    }
+
+    public CountingByteBufferPool(ByteBufferPool delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    // A pool of the type of the config, counted if it says so
+    public static ByteBufferPool newByteBufferPool(ServerConfig config)
+    {
+        ByteBufferPool pool = config.getBufferPoolType().newByteBufferPool();
+        return config.isBufferCounting() ? new CountingByteBufferPool(pool) : pool;
+    }
+
+    public ByteBufferPool getDelegate()
+    {
+        return delegate;
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        ByteBuffer buffer = delegate.acquire(size, direct);
+        int capacity = buffer.capacity();
+        acquires.incrementAndGet();
+        if (buffer.isDirect())
+            directAcquires.incrementAndGet();
+        acquiredBytes.addAndGet(capacity);
+        capacities.incrementAndGet(Math.min(capacities.length() - 1, 32 - Integer.numberOfLeadingZeros(capacity)));
+        long count = outstanding.incrementAndGet();
+        long bytes = outstandingBytes.addAndGet(capacity);
+        peakOutstanding.accumulateAndGet(count, Math::max);
+        peakOutstandingBytes.accumulateAndGet(bytes, Math::max);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        releases.incrementAndGet();
+        outstanding.decrementAndGet();
+        outstandingBytes.addAndGet(-buffer.capacity());
+        delegate.release(buffer);
+    }
+
+    public long getAcquires()
+    {
+        return acquires.get();
+    }
+
+    public long getDirectAcquires()
+    {
+        return directAcquires.get();
+    }
+
+    public long getHeapAcquires()
+    {
+        return acquires.get() - directAcquires.get();
+    }
+
+    // By capacity
+    public long getAcquiredBytes()
+    {
+        return acquiredBytes.get();
+    }
+
+    public long getReleases()
+    {
+        return releases.get();
+    }
+
+    public long getOutstanding()
+    {
+        return outstanding.get();
+    }
+
+    // By capacity
+    public long getOutstandingBytes()
+    {
+        return outstandingBytes.get();
+    }
+
+    public long getPeakOutstanding()
+    {
+        return peakOutstanding.get();
+    }
+
+    public long getPeakOutstandingBytes()
+    {
+        return peakOutstandingBytes.get();
+    }
+
+    // The acquires of [2^(bucket-1), 2^bucket) bytes of capacity, bucket 0 being the empty ones
+    public long getAcquires(int bucket)
+    {
+        return capacities.get(bucket);
+    }
+
+    public int getBuckets()
+    {
+        return capacities.length();
+    }
+
+    public void reset()
+    {
+        acquires.set(0);
+        directAcquires.set(0);
+        acquiredBytes.set(0);
+        releases.set(0);
+        peakOutstanding.set(outstanding.get());
+        peakOutstandingBytes.set(outstandingBytes.get());
+        for (int i = 0; i < capacities.length(); i++)
+        {
+            capacities.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[acquires=%d,direct=%d,releases=%d,outstanding=%d/%dB,peak=%d/%dB,delegate=%s]", getClass().getSimpleName(),
+            hashCode(), getAcquires(), getDirectAcquires(), getReleases(), getOutstanding(), getOutstandingBytes(),
+            getPeakOutstanding(), getPeakOutstandingBytes(), delegate.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,97 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+// A QueuedThreadPool that counts the jobs it executed and rejected, and the most jobs queued at once.
+// With a queue delay listener, every job is timed from execute() to when a thread runs it, the time it waited
+// in the queue, or for an idle thread to take it. Jobs the ReservedThreadExecutor hands over directly to a
+// reserved thread do not go through execute(), they are neither counted nor timed.
+public class CountingThreadPool extends QueuedThreadPool
+{
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong peakQueueSize = new AtomicLong();
+    private volatile LongConsumer queueDelays;
+
+    public CountingThreadPool(int maxThreads, int minThreads, BlockingQueue<Runnable> queue)
+    {
+        super(maxThreads, minThreads, 60000, queue);
+    }
+
+    // Called with the queue delay in nanoseconds of every job, from the thread running it, null to stop timing
+    public void setQueueDelayListener(LongConsumer queueDelays)
+    {
+        this.queueDelays = queueDelays;
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        LongConsumer listener = queueDelays;
+        Runnable task = listener == null ? job : new TimedJob(job, listener);
+        try
+        {
+            super.execute(task);
+            executed.incrementAndGet();
+            peakQueueSize.accumulateAndGet(getQueueSize(), Math::max);
+        }
+        catch (RejectedExecutionException x)
+        {
+            rejected.incrementAndGet();
+            throw x;
+        }
+    }
+
+    public long getExecuted()
+    {
+        return executed.get();
+    }
+
+    public long getRejected()
+    {
+        return rejected.get();
+    }
+
+    public long getPeakQueueSize()
+    {
+        return peakQueueSize.get();
+    }
+
+    public void reset()
+    {
+        executed.set(0);
+        rejected.set(0);
+        peakQueueSize.set(getQueueSize());
+    }
+
+    private static class TimedJob implements Runnable
+    {
+        private final Runnable job;
+        private final LongConsumer listener;
+        private final long queued = System.nanoTime();
+
+        private TimedJob(Runnable job, LongConsumer listener)
+        {
+            this.job = job;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run()
+        {
+            listener.accept(System.nanoTime() - queued);
+            job.run();
+        }
+
+        @Override
+        public String toString()
+        {
+            return job.toString();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.Arrays;
+import javax.servlet.http.HttpServlet;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.handler.ErrorHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+public enum ErrorScenario
+{
+    SEND_ERROR(CommonSendErrorRedirectBodyTest.TossErrorServlet.class,
+        CommonSendErrorRedirectBodyTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 8 * 1024),
+    SEND_ERROR_LARGE(CommonSendErrorRedirectBodyLargeTest.TossErrorServlet.class,
+        CommonSendErrorRedirectBodyLargeTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 48 * 1024),
+    GET_OUTPUT_STREAM_SEND_ERROR(CommonGetOutputStreamSendErrorRedirectBodyTest.TossErrorServlet.class,
+        CommonGetOutputStreamSendErrorRedirectBodyTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 8 * 1024),
+    GET_OUTPUT_STREAM_SEND_ERROR_LARGE(CommonGetOutputStreamSendErrorRedirectBodyLargeTest.TossErrorServlet.class,
+        CommonGetOutputStreamSendErrorRedirectBodyLargeTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 32 * 1024),
+    SEND_ERROR_WRITE(CommonSendErrorWriteRedirectBodyTest.TossErrorServlet.class,
+        CommonSendErrorWriteRedirectBodyTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 16 * 1024),
+    WRITE_SEND_ERROR(CommonWriteSendErrorRedirectBodyTest.TossErrorServlet.class,
+        CommonWriteSendErrorRedirectBodyTest.MyErrorServlet.class,
+        Outcome.ERROR_PAGE, 16 * 1024),
+    WRITE_LARGE_SEND_ERROR(CommonWriteLargeSendErrorRedirectBodyTest.TossErrorServlet.class,
+        CommonWriteLargeSendErrorRedirectBodyTest.MyErrorServlet.class,
+        Outcome.ABORTED, 160 * 1024),
+    ASYNC_CONTEXT_SEND_ERROR_WRITE(CommonAsyncContextSendErrorWriteRedirectBodyTest.TossErrorServlet.class,
+        CommonAsyncContextSendErrorWriteRedirectBodyTest.MyErrorServlet.class,
+        Outcome.REDIRECT_ONLY, 16 * 1024);
+
+    public enum Outcome
+    {
+        // 301 with the body produced by the error page
+        ERROR_PAGE,
+        // 301 without the error page body
+        REDIRECT_ONLY,
+        // response is committed before sendError, connection is aborted
+        ABORTED
+    }
+
+    private final Class<? extends HttpServlet> tossServlet;
+    private final Class<? extends HttpServlet> errorServlet;
+    private final Outcome outcome;
+    private final long serverAllocationBudget;
+
+    ErrorScenario(Class<? extends HttpServlet> tossServlet, Class<? extends HttpServlet> errorServlet, Outcome outcome, long serverAllocationBudget)
+    {
+        this.tossServlet = tossServlet;
+        this.errorServlet = errorServlet;
+        this.outcome = outcome;
+        this.serverAllocationBudget = serverAllocationBudget;
+    }
+
+    public Class<? extends HttpServlet> getTossServlet()
+    {
+        return tossServlet;
+    }
+
+    public Class<? extends HttpServlet> getErrorServlet()
+    {
+        return errorServlet;
+    }
+
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+    // Bytes the server threads may allocate per request, with any Behavior and any version.
+    // Checked by the benchmarks CostReport and MultiVersionRunner.
+    public long getServerAllocationBudget()
+    {
+        return serverAllocationBudget;
+    }
+
+    public boolean isAsyncSupported()
+    {
+        return this == ASYNC_CONTEXT_SEND_ERROR_WRITE;
+    }
+
+    // The same body as the MyErrorServlet of the scenario, without the dispatch
+    public PreEncodedErrorHandler newPreEncodedErrorHandler()
+    {
+        // PrintWriter.println() ends lines with the line.separator, ServletOutputStream.println() with CRLF
+        String suffix;
+        switch (this)
+        {
+            case SEND_ERROR:
+                suffix = "";
+                break;
+            case SEND_ERROR_LARGE:
+                suffix = largeSuffix(System.lineSeparator(),
+                    CommonSendErrorRedirectBodyLargeTest.OUTPUT_BUFFER_COUNT, CommonSendErrorRedirectBodyLargeTest.OUTPUT_BUFFER_WRITE_SIZE);
+                break;
+            case GET_OUTPUT_STREAM_SEND_ERROR:
+            case ASYNC_CONTEXT_SEND_ERROR_WRITE:
+                suffix = "\r\n";
+                break;
+            case GET_OUTPUT_STREAM_SEND_ERROR_LARGE:
+                suffix = largeSuffix("\r\n",
+                    CommonGetOutputStreamSendErrorRedirectBodyLargeTest.OUTPUT_BUFFER_COUNT, CommonGetOutputStreamSendErrorRedirectBodyLargeTest.OUTPUT_BUFFER_WRITE_SIZE);
+                break;
+            default:
+                suffix = System.lineSeparator();
+                break;
+        }
+
+        PreEncodedErrorHandler errorHandler = new PreEncodedErrorHandler();
+        errorHandler.setErrorBody(301, "text/plain;charset=utf-8", "Not here, go there: ", suffix);
+        return errorHandler;
+    }
+
+    private static String largeSuffix(String lineSeparator, int count, int writeSize)
+    {
+        StringBuilder suffix = new StringBuilder(lineSeparator);
+        for (int i = 0; i <= count; i++)
+        {
+            char[] buf = new char[writeSize];
+            Arrays.fill(buf, (char)('a' + i));
+            suffix.append(buf).append(lineSeparator);
+        }
+        return suffix.toString();
+    }
+
+    // A PreEncodedErrorHandler if the config says so, an ErrorPageErrorHandler otherwise
+    public ErrorHandler newErrorHandler(ServerConfig config)
+    {
+        if (config.isPreEncodedErrorHandler())
+            return newPreEncodedErrorHandler();
+        return new ErrorPageErrorHandler();
+    }
+
+    public ServletContextHandler newContextHandler(ServerConfig config)
+    {
+        return newContextHandler(newErrorHandler(config));
+    }
+
+    // An ErrorPageErrorHandler gets the /error/ page for the 301
+    public ServletContextHandler newContextHandler(ErrorHandler errorHandler)
+    {
+        ServletContextHandler contextHandler = new ServletContextHandler();
+        contextHandler.setContextPath("/");
+        ServletHolder tossHolder = contextHandler.addServlet(tossServlet, "/toss/");
+        tossHolder.setAsyncSupported(isAsyncSupported());
+        ServletHolder errorHolder = contextHandler.addServlet(errorServlet, "/error/");
+        errorHolder.setAsyncSupported(isAsyncSupported());
+
+        if (errorHandler instanceof ErrorPageErrorHandler)
+            ((ErrorPageErrorHandler)errorHandler).addErrorPage(301, "/error/");
+        contextHandler.setErrorHandler(errorHandler);
+
+        return contextHandler;
+    }
+
+    public Handler newHandler(ServerConfig config, Behavior behavior)
+    {
+        return newHandler(config, behavior, AbstractCommonTest.newGzipHandler());
+    }
+
+    // The gzipHandler is only used by the GZIP behaviors
+    public Handler newHandler(ServerConfig config, Behavior behavior, GzipHandler gzipHandler)
+    {
+        return newHandler(config, behavior, gzipHandler, newErrorHandler(config));
+    }
+
+    public Handler newHandler(ServerConfig config, Behavior behavior, GzipHandler gzipHandler, ErrorHandler errorHandler)
+    {
+        return withBehavior(config, newContextHandler(errorHandler), behavior, gzipHandler);
+    }
+
+    // The same handler tree, only created by the first request
+    public LazyHandler newLazyHandler(ServerConfig config, Behavior behavior)
+    {
+        return new LazyHandler(() -> newHandler(config, behavior));
+    }
+
+    // The handler tree of the Behavior around any context, instrumented if config.isTimeline()
+    public static Handler withBehavior(ServerConfig config, ServletContextHandler contextHandler, Behavior behavior, GzipHandler gzipHandler)
+    {
+        if (config.isTimeline())
+            TimelineRecorder.instrument(contextHandler);
+        switch (behavior)
+        {
+            case GZIP_EXTERNAL:
+                gzipHandler.setHandler(contextHandler);
+                return gzipHandler;
+            case GZIP_INTERNAL:
+                contextHandler.setGzipHandler(gzipHandler);
+                return contextHandler;
+            default:
+                return contextHandler;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+
+// Finds which of a set of fragments occur in a stream of bytes, in a single pass, whatever the chunking.
+// An Aho-Corasick automaton over the encoded fragments: the state carried from one chunk to the next is
+// one node of the trie, so the memory is that of the fragments, not of the content.
+// Children are kept as sibling lists, the error pages fragments are long runs with a fan-out of one or two.
+// Not thread safe, one instance per response.
+public class FragmentMatcher
+{
+    private static final int ROOT = 0;
+
+    private final List<String> fragments;
+    // Trie nodes
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final byte[] label;
+    private final int[] fail;
+    // The fragment ending at the node, -1 if none
+    private final int[] output;
+    // The nearest node on the fail chain with an output, -1 if none
+    private final int[] outputLink;
+    private int nodes;
+
+    private final BitSet found;
+    private int state = ROOT;
+    private long scanned;
+
+    public FragmentMatcher(Charset charset, String... fragments)
+    {
+        this(charset, Arrays.asList(fragments));
+    }
+
+    public FragmentMatcher(Charset charset, List<String> fragments)
+    {
+        this.fragments = new ArrayList<>(fragments);
+        this.found = new BitSet(fragments.size());
+        int capacity = 1;
+        List<byte[]> encoded = new ArrayList<>();
+        for (String fragment : fragments)
+        {
+            byte[] bytes = fragment.getBytes(charset);
+            if (bytes.length == 0)
+                throw new IllegalArgumentException("Empty fragment");
+            encoded.add(bytes);
+            capacity += bytes.length;
+        }
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        label = new byte[capacity];
+        fail = new int[capacity];
+        output = new int[capacity];
+        outputLink = new int[capacity];
+        nodes = 1;
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        Arrays.fill(output, -1);
+        Arrays.fill(outputLink, -1);
+
+        for (int i = 0; i < encoded.size(); i++)
+        {
+            int node = ROOT;
+            for (byte b : encoded.get(i))
+            {
+                int child = child(node, b);
+                if (child < 0)
+                {
+                    child = nodes++;
+                    label[child] = b;
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            // The same fragment twice shares the node, the first one reports for both
+            if (output[node] < 0)
+                output[node] = i;
+        }
+        buildFailLinks();
+    }
+
+    private int child(int node, byte b)
+    {
+        for (int child = firstChild[node]; child >= 0; child = nextSibling[child])
+        {
+            if (label[child] == b)
+                return child;
+        }
+        return -1;
+    }
+
+    // Breadth first, so that the fail link of a node is computed before the ones of its children
+    private void buildFailLinks()
+    {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child = firstChild[ROOT]; child >= 0; child = nextSibling[child])
+        {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty())
+        {
+            int node = queue.remove();
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child])
+            {
+                fail[child] = next(fail[node], label[child]);
+                int target = fail[child];
+                outputLink[child] = output[target] >= 0 ? target : outputLink[target];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int next(int node, byte b)
+    {
+        while (true)
+        {
+            int child = child(node, b);
+            if (child >= 0)
+                return child;
+            if (node == ROOT)
+                return ROOT;
+            node = fail[node];
+        }
+    }
+
+    // Consumes the remaining bytes of the buffer
+    public void update(ByteBuffer buffer)
+    {
+        int node = state;
+        int remaining = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            node = next(node, buffer.get());
+            for (int match = output[node] >= 0 ? node : outputLink[node]; match >= 0; match = outputLink[match])
+            {
+                found.set(output[match]);
+            }
+        }
+        state = node;
+        scanned += remaining;
+    }
+
+    public void update(byte[] bytes, int offset, int length)
+    {
+        update(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    public boolean isFound(String fragment)
+    {
+        int index = fragments.indexOf(fragment);
+        if (index < 0)
+            throw new IllegalArgumentException("Unknown fragment: " + fragment);
+        return found.get(index);
+    }
+
+    public boolean isAllFound()
+    {
+        return getMissing().isEmpty();
+    }
+
+    // Duplicated fragments are reported once
+    public List<String> getMissing()
+    {
+        List<String> missing = new ArrayList<>();
+        for (String fragment : fragments)
+        {
+            if (!isFound(fragment) && !missing.contains(fragment))
+                missing.add(fragment);
+        }
+        return missing;
+    }
+
+    public long getScanned()
+    {
+        return scanned;
+    }
+
+    // The trie size, what the matcher holds in memory besides its fragments
+    public int getNodes()
+    {
+        return nodes;
+    }
+}
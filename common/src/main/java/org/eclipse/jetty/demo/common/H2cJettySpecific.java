@@ -0,0 +1,15 @@
+package org.eclipse.jetty.demo.common;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+// Implemented by the JettySpecific of the versions built and tested with the http2 artifacts, see CommonH2cTest
+public interface H2cJettySpecific extends JettySpecific
+{
+    // Same as newServer(threadPool), with a ServerConnector speaking HTTP/1.1 and h2c (HTTP/2 over clear text)
+    Server newH2cServer(ThreadPool threadPool);
+
+    // Same as newClient(), sending every request as an HTTP/2 stream, with prior knowledge
+    HttpClient newH2cClient();
+}
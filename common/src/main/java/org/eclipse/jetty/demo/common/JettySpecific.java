@@ -1,11 +1,39 @@
 package org.eclipse.jetty.demo.common;
 
+import java.util.ServiceLoader;
+
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 public interface JettySpecific
 {
+    // The JettySpecific of the version on the class path, building its servers with the config.
+    // The ServiceLoader looks at the context class loader, see MultiVersionRunner.
+    static JettySpecific load(ServerConfig config)
+    {
+        for (JettySpecific specific : ServiceLoader.load(JettySpecific.class))
+        {
+            return specific.withConfig(config);
+        }
+        throw new RuntimeException("Unable to find JettySpecific");
+    }
+
+    ServerConfig getConfig();
+
+    // The same version, building its servers with the given config, on a VirtualThreadPool if it says so
+    JettySpecific withConfig(ServerConfig config);
+
     Server newServer();
 
+    // Same as newServer(), on the given ThreadPool, null for the default QueuedThreadPool
+    Server newServer(ThreadPool threadPool);
+
+    // Same as newServer(), on a CountingThreadPool capped by the limits
+    Server newLimitedServer(ThreadPoolLimits limits);
+
+    // Same configuration as newServer(), but with an in-memory LocalConnector instead of a ServerConnector
+    Server newLocalServer();
+
     HttpClient newClient();
 }
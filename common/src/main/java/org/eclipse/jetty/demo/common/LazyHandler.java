@@ -0,0 +1,103 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandlerContainer;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// Creates and starts its handler on the first request instead of when the server starts,
+// see ErrorScenario.newLazyHandler(): Server.start() then leaves the servlets, the error handler
+// and the gzip handler to the first request.
+// Concurrent first requests wait for the one creating the handler. A handler failing to start
+// is not kept, the next request tries again. Once stopped, the handler is created again.
+public class LazyHandler extends AbstractHandlerContainer
+{
+    private final Supplier<Handler> factory;
+    private volatile Handler handler;
+
+    public LazyHandler(Supplier<Handler> factory)
+    {
+        this.factory = factory;
+    }
+
+    // Null until the first request
+    public Handler getHandler()
+    {
+        return handler;
+    }
+
+    public boolean isInitialized()
+    {
+        return handler != null;
+    }
+
+    @Override
+    public Handler[] getHandlers()
+    {
+        Handler handler = this.handler;
+        return handler == null ? new Handler[0] : new Handler[]{handler};
+    }
+
+    @Override
+    protected void expandChildren(List<Handler> list, Class<?> byClass)
+    {
+        Handler handler = this.handler;
+        if (handler != null)
+            expandHandler(handler, list, byClass);
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (!isStarted())
+            return;
+        getOrCreateHandler().handle(target, baseRequest, request, response);
+    }
+
+    private Handler getOrCreateHandler() throws ServletException
+    {
+        Handler handler = this.handler;
+        if (handler != null)
+            return handler;
+        synchronized (this)
+        {
+            if (this.handler == null)
+            {
+                Handler created = factory.get();
+                created.setServer(getServer());
+                try
+                {
+                    created.start();
+                }
+                catch (Exception x)
+                {
+                    LifeCycle.stop(created);
+                    throw new ServletException("Could not start " + created, x);
+                }
+                // Managed, so that it stops with this handler
+                addBean(created, true);
+                this.handler = created;
+            }
+            return this.handler;
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        synchronized (this)
+        {
+            if (handler != null)
+                removeBean(handler);
+            handler = null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+// Sends raw requests through a LocalConnector, reusing the same endpoint while the server keeps it alive.
+// Sends the same Accept-Encoding as HttpClient, so that the GZIP behaviors compress.
+public class LocalClient implements AutoCloseable
+{
+    private final LocalConnector connector;
+    private LocalConnector.LocalEndPoint endPoint;
+    private long timeoutMillis = TimeUnit.SECONDS.toMillis(10);
+
+    public LocalClient(LocalConnector connector)
+    {
+        this.connector = connector;
+    }
+
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    public RawHttpResponse GET(String pathQuery) throws Exception
+    {
+        return GET(pathQuery, "gzip");
+    }
+
+    public RawHttpResponse GET(String pathQuery, String acceptEncoding) throws Exception
+    {
+        if (endPoint == null || !endPoint.isOpen())
+            endPoint = connector.connect();
+
+        endPoint.addInput("GET " + pathQuery + " HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Accept-Encoding: " + acceptEncoding + "\r\n" +
+            "\r\n");
+
+        ByteBuffer raw = endPoint.waitForResponse(false, timeoutMillis, TimeUnit.MILLISECONDS);
+        RawHttpResponse response = RawHttpResponse.parse(raw);
+        if (!response.isComplete() || response.isConnectionClose())
+            close();
+        return response;
+    }
+
+    @Override
+    public void close()
+    {
+        if (endPoint != null)
+        {
+            endPoint.close();
+            endPoint = null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.ErrorHandler;
+
+// Writes the error body of a status straight into the HttpOutput, without dispatching to an error page.
+// The body is prefix + Location + suffix, like the MyErrorServlets "Not here, go there: " + Location,
+// the prefix and suffix are encoded once by setErrorBody() and the Location once per distinct value,
+// so that serving a page allocates neither Strings nor a PrintWriter.
+// The response is framed as the dispatch would frame it: Content-Length when the body fits
+// in the output buffer, chunked otherwise.
+public class PreEncodedErrorHandler extends ErrorHandler
+{
+    private static final int MAX_LOCATIONS = 64;
+    private static final byte[] NULL_LOCATION = "null".getBytes(StandardCharsets.ISO_8859_1);
+
+    // Indexed by status, a Map<Integer, ...> would box every status above 127
+    private final ErrorBody[] bodies = new ErrorBody[600];
+
+    // Configured before the server starts, like the error pages of an ErrorPageErrorHandler
+    public void setErrorBody(int status, String contentType, String prefix, String suffix)
+    {
+        if (status < 0 || status >= bodies.length)
+            throw new IllegalArgumentException("Status " + status + " not in [0, " + bodies.length + ")");
+        bodies[status] = new ErrorBody(contentType, prefix, suffix);
+    }
+
+    @Override
+    public void doError(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        int status = response.getStatus();
+        ErrorBody body = status >= 0 && status < bodies.length ? bodies[status] : null;
+        if (body == null)
+        {
+            super.doError(target, baseRequest, request, response);
+            return;
+        }
+
+        Response baseResponse = baseRequest.getResponse();
+        // As the dispatch to an error page would, drops what the application had buffered
+        baseResponse.resetForForward();
+        String cacheControl = getCacheControl();
+        if (cacheControl != null)
+            response.setHeader(HttpHeader.CACHE_CONTROL.asString(), cacheControl);
+        body.write(baseResponse, response.getHeader(HttpHeader.LOCATION.asString()));
+        baseRequest.setHandled(true);
+    }
+
+    private static class ErrorBody
+    {
+        private final String contentType;
+        private final Charset charset;
+        private final byte[] prefix;
+        private final byte[] suffix;
+        private final Map<String, byte[]> locations = new ConcurrentHashMap<>();
+
+        private ErrorBody(String contentType, String prefix, String suffix)
+        {
+            this.contentType = contentType;
+            String charsetName = MimeTypes.getCharsetFromContentType(contentType);
+            this.charset = charsetName == null ? StandardCharsets.ISO_8859_1 : Charset.forName(charsetName);
+            this.prefix = prefix.getBytes(charset);
+            this.suffix = suffix.getBytes(charset);
+        }
+
+        private byte[] encode(String location)
+        {
+            if (location == null)
+                return NULL_LOCATION;
+            byte[] encoded = locations.get(location);
+            if (encoded == null)
+            {
+                // Bounded, a client choosing the Location must not grow it forever
+                if (locations.size() >= MAX_LOCATIONS)
+                    locations.clear();
+                encoded = location.getBytes(charset);
+                locations.put(location, encoded);
+            }
+            return encoded;
+        }
+
+        private void write(Response baseResponse, String location) throws IOException
+        {
+            byte[] encodedLocation = encode(location);
+            baseResponse.setContentType(contentType);
+
+            // Straight to the HttpOutput, without choosing between the stream and the writer,
+            // an application writing after sendError is ignored just as with the dispatch
+            HttpOutput output = baseResponse.getHttpOutput();
+            output.write(prefix, 0, prefix.length);
+            output.write(encodedLocation, 0, encodedLocation.length);
+            output.write(suffix, 0, suffix.length);
+            output.close();
+        }
+    }
+}
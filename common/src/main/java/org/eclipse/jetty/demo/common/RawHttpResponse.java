@@ -0,0 +1,204 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+// A minimal HTTP/1.1 response parser, independent of the Jetty version under test.
+// A response that ends early (eg: the server aborted a chunked body) is reported as not complete.
+public class RawHttpResponse
+{
+    private final HttpFields headers = new HttpFields();
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private int status;
+    private String reason;
+    private int chunks;
+    private boolean complete;
+
+    public static RawHttpResponse parse(ByteBuffer buffer)
+    {
+        RawHttpResponse response = new RawHttpResponse();
+        if (buffer == null)
+            return response;
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.slice().get(bytes);
+        response.parse(bytes);
+        return response;
+    }
+
+    private void parse(byte[] bytes)
+    {
+        int headerEnd = indexOf(bytes, 0, "\r\n\r\n");
+        if (headerEnd < 0)
+            return;
+
+        String[] lines = new String(bytes, 0, headerEnd, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] statusLine = lines[0].split(" ", 3);
+        if (statusLine.length < 2)
+            return;
+        status = Integer.parseInt(statusLine[1]);
+        reason = statusLine.length > 2 ? statusLine[2] : "";
+        for (int i = 1; i < lines.length; i++)
+        {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0)
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+
+        int offset = headerEnd + 4;
+        String transferEncoding = headers.get(HttpHeader.TRANSFER_ENCODING);
+        String contentLength = headers.get(HttpHeader.CONTENT_LENGTH);
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ENGLISH).contains("chunked"))
+        {
+            parseChunked(bytes, offset);
+        }
+        else if (contentLength != null)
+        {
+            int length = Integer.parseInt(contentLength);
+            int available = Math.min(length, bytes.length - offset);
+            content.write(bytes, offset, available);
+            complete = available == length;
+        }
+        else
+        {
+            // Delimited by the connection close, the caller only hands over what was read until then
+            content.write(bytes, offset, bytes.length - offset);
+            complete = true;
+        }
+    }
+
+    private void parseChunked(byte[] bytes, int offset)
+    {
+        while (true)
+        {
+            int lineEnd = indexOf(bytes, offset, "\r\n");
+            if (lineEnd < 0)
+                return;
+            String sizeLine = new String(bytes, offset, lineEnd - offset, StandardCharsets.ISO_8859_1);
+            int semicolon = sizeLine.indexOf(';');
+            int size = Integer.parseInt((semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+            offset = lineEnd + 2;
+
+            if (size == 0)
+            {
+                // No trailers are expected, just the final CRLF
+                complete = indexOf(bytes, offset, "\r\n") >= 0;
+                return;
+            }
+
+            if (offset + size + 2 > bytes.length)
+            {
+                content.write(bytes, offset, Math.max(0, Math.min(size, bytes.length - offset)));
+                return;
+            }
+            content.write(bytes, offset, size);
+            chunks++;
+            offset += size + 2;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, String token)
+    {
+        byte[] search = token.getBytes(StandardCharsets.ISO_8859_1);
+        outer:
+        for (int i = from; i <= bytes.length - search.length; i++)
+        {
+            for (int j = 0; j < search.length; j++)
+            {
+                if (bytes[i + j] != search[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public String getReason()
+    {
+        return reason;
+    }
+
+    public HttpFields getHeaders()
+    {
+        return headers;
+    }
+
+    // The number of non-empty chunks, 0 if the response was not chunked
+    public int getChunkCount()
+    {
+        return chunks;
+    }
+
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    public boolean isConnectionClose()
+    {
+        String connection = headers.get(HttpHeader.CONNECTION);
+        return connection != null && connection.toLowerCase(Locale.ENGLISH).contains("close");
+    }
+
+    // The body as sent on the wire, still encoded if a Content-Encoding was applied
+    public byte[] getContentBytes()
+    {
+        return content.toByteArray();
+    }
+
+    // The decoded body, gunzipped when the Content-Encoding is gzip
+    public String getContentAsString() throws IOException
+    {
+        byte[] bytes = content.toByteArray();
+        String contentEncoding = headers.get(HttpHeader.CONTENT_ENCODING);
+        if (contentEncoding != null && contentEncoding.toLowerCase(Locale.ENGLISH).contains("gzip"))
+        {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes)))
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) >= 0)
+                {
+                    out.write(buffer, 0, read);
+                }
+                bytes = out.toByteArray();
+            }
+        }
+        return new String(bytes, getCharset());
+    }
+
+    private Charset getCharset()
+    {
+        String contentType = headers.get(HttpHeader.CONTENT_TYPE);
+        if (contentType != null)
+        {
+            int charset = contentType.toLowerCase(Locale.ENGLISH).indexOf("charset=");
+            if (charset >= 0)
+                return Charset.forName(contentType.substring(charset + "charset=".length()).replace("\"", "").trim());
+        }
+        return StandardCharsets.ISO_8859_1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%d %s,complete=%b,chunks=%d,content=%d}",
+            getClass().getSimpleName(), hashCode(), status, reason, complete, chunks, content.size());
+    }
+}
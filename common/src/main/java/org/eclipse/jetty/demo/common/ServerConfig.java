@@ -0,0 +1,180 @@
+package org.eclipse.jetty.demo.common;
+
+// How the servers of a JettySpecific are built, see JettySpecific.withConfig().
+// Immutable, the with*() methods return a modified copy, so that a benchmark changing one setting
+// does not leak it into the next one, nor into the other versions of MultiVersionRunner.
+public class ServerConfig
+{
+    private boolean reuseServer;
+    private boolean preEncodedErrorHandler;
+    private boolean virtualThreads;
+    private boolean timeline;
+    private boolean writeCounting;
+    private boolean bufferCounting;
+    private CountingByteBufferPool.Type bufferPoolType = CountingByteBufferPool.Type.ARRAY;
+    private int outputBufferSize = AbstractCommonTest.OUTPUT_BUFFER_SIZE;
+    private int outputAggregationSize = AbstractCommonTest.OUTPUT_AGGREGATION_SIZE;
+
+    public ServerConfig()
+    {
+    }
+
+    private ServerConfig(ServerConfig config)
+    {
+        this.reuseServer = config.reuseServer;
+        this.preEncodedErrorHandler = config.preEncodedErrorHandler;
+        this.virtualThreads = config.virtualThreads;
+        this.timeline = config.timeline;
+        this.writeCounting = config.writeCounting;
+        this.bufferCounting = config.bufferCounting;
+        this.bufferPoolType = config.bufferPoolType;
+        this.outputBufferSize = config.outputBufferSize;
+        this.outputAggregationSize = config.outputAggregationSize;
+    }
+
+    // The -Djetty.demo.* properties the tests and benchmarks are run with
+    public static ServerConfig fromSystemProperties()
+    {
+        ServerConfig config = new ServerConfig();
+        config.reuseServer = Boolean.getBoolean("jetty.demo.reuseServer");
+        config.preEncodedErrorHandler = Boolean.getBoolean("jetty.demo.preEncodedErrorHandler");
+        config.virtualThreads = Boolean.getBoolean("jetty.demo.virtualThreads");
+        config.timeline = Boolean.getBoolean("jetty.demo.timeline");
+        config.writeCounting = Boolean.getBoolean("jetty.demo.writeCounting");
+        config.bufferCounting = Boolean.getBoolean("jetty.demo.bufferCounting");
+        config.bufferPoolType = CountingByteBufferPool.Type.valueOf(System.getProperty("jetty.demo.bufferPool", config.bufferPoolType.name()));
+        config.outputBufferSize = Integer.getInteger("jetty.demo.outputBufferSize", config.outputBufferSize);
+        config.outputAggregationSize = Integer.getInteger("jetty.demo.outputAggregationSize", config.outputAggregationSize);
+        return config;
+    }
+
+    // -Djetty.demo.reuseServer=true keeps one started Server per test class and swaps the handler tree,
+    // see AbstractCommonTest.startServer()
+    public boolean isReuseServer()
+    {
+        return reuseServer;
+    }
+
+    public ServerConfig withReuseServer(boolean reuseServer)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.reuseServer = reuseServer;
+        return config;
+    }
+
+    // -Djetty.demo.preEncodedErrorHandler=true runs the scenarios with a PreEncodedErrorHandler
+    // instead of the ErrorPageErrorHandler dispatching to the /error/ servlet, see ErrorScenario.newErrorHandler()
+    public boolean isPreEncodedErrorHandler()
+    {
+        return preEncodedErrorHandler;
+    }
+
+    public ServerConfig withPreEncodedErrorHandler(boolean preEncodedErrorHandler)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.preEncodedErrorHandler = preEncodedErrorHandler;
+        return config;
+    }
+
+    // -Djetty.demo.virtualThreads=true runs the servers from newServer() on a VirtualThreadPool,
+    // see VirtualThreadJettySpecific
+    public boolean isVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    public ServerConfig withVirtualThreads(boolean virtualThreads)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.virtualThreads = virtualThreads;
+        return config;
+    }
+
+    // -Djetty.demo.timeline=true registers a TimelineRecorder on the connectors of the servers, and instruments
+    // the contexts of the scenarios, see ErrorScenario.withBehavior(), the benchmarks TimelineProfile turns it on
+    public boolean isTimeline()
+    {
+        return timeline;
+    }
+
+    public ServerConfig withTimeline(boolean timeline)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.timeline = timeline;
+        return config;
+    }
+
+    // -Djetty.demo.writeCounting=true puts a WriteCounter on the ServerConnectors of the servers,
+    // see WriteCounter.newServerConnector(), the benchmarks WriteAmplificationProfile turns it on
+    public boolean isWriteCounting()
+    {
+        return writeCounting;
+    }
+
+    public ServerConfig withWriteCounting(boolean writeCounting)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.writeCounting = writeCounting;
+        return config;
+    }
+
+    // -Djetty.demo.bufferCounting=true gives the ServerConnectors of the servers a CountingByteBufferPool,
+    // see CountingByteBufferPool.newByteBufferPool(), the benchmarks SoakRunner and BufferPoolProfile turn it on
+    public boolean isBufferCounting()
+    {
+        return bufferCounting;
+    }
+
+    public ServerConfig withBufferCounting(boolean bufferCounting)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.bufferCounting = bufferCounting;
+        return config;
+    }
+
+    // -Djetty.demo.bufferPool=MAPPED gives them a MappedByteBufferPool instead, the benchmarks BufferPoolProfile compares both
+    public CountingByteBufferPool.Type getBufferPoolType()
+    {
+        return bufferPoolType;
+    }
+
+    public ServerConfig withBufferPoolType(CountingByteBufferPool.Type bufferPoolType)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.bufferPoolType = bufferPoolType;
+        return config;
+    }
+
+    // -Djetty.demo.outputBufferSize and -Djetty.demo.outputAggregationSize override the defaults
+    // of the server HttpConfiguration, the benchmarks BufferSizeSweep changes them between servers
+    public int getOutputBufferSize()
+    {
+        return outputBufferSize;
+    }
+
+    public ServerConfig withOutputBufferSize(int outputBufferSize)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.outputBufferSize = outputBufferSize;
+        return config;
+    }
+
+    public int getOutputAggregationSize()
+    {
+        return outputAggregationSize;
+    }
+
+    public ServerConfig withOutputAggregationSize(int outputAggregationSize)
+    {
+        ServerConfig config = new ServerConfig(this);
+        config.outputAggregationSize = outputAggregationSize;
+        return config;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[reuseServer=%b,preEncodedErrorHandler=%b,virtualThreads=%b,timeline=%b,writeCounting=%b,bufferCounting=%b,bufferPoolType=%s,outputBufferSize=%d,outputAggregationSize=%d]",
+            getClass().getSimpleName(), reuseServer, preEncodedErrorHandler, virtualThreads, timeline, writeCounting, bufferCounting, bufferPoolType, outputBufferSize, outputAggregationSize);
+    }
+}
@@ -0,0 +1,49 @@
+package org.eclipse.jetty.demo.common;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HotSwapHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+// A started Server (and ServerConnector) whose handler tree can be replaced between scenarios
+public class ServerFixture
+{
+    private final Server server;
+    private final HotSwapHandler hotSwapHandler = new HotSwapHandler();
+
+    public ServerFixture(Server server)
+    {
+        this.server = server;
+        this.server.setHandler(hotSwapHandler);
+    }
+
+    public Server getServer()
+    {
+        return server;
+    }
+
+    public void start() throws Exception
+    {
+        server.start();
+    }
+
+    // Starts the new handler tree, then stops the previous one.
+    // HotSwapHandler does not start a handler added to an already started container itself.
+    public void swapHandler(Handler handler)
+    {
+        Handler oldHandler = hotSwapHandler.getHandler();
+        if (handler != null)
+        {
+            handler.setServer(server);
+            if (hotSwapHandler.isStarted())
+                LifeCycle.start(handler);
+        }
+        hotSwapHandler.setHandler(handler);
+        LifeCycle.stop(oldHandler);
+    }
+
+    public void stop()
+    {
+        LifeCycle.stop(server);
+    }
+}
@@ -0,0 +1,155 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+// The LARGE scenarios with their sizes as parameters instead of OUTPUT_BUFFER_COUNT writes of OUTPUT_BUFFER_WRITE_SIZE:
+// - the toss servlet writes preWriteSize bytes with the writer, like WRITE_LARGE_SEND_ERROR, then sendError(301)
+// - the error page is bodySize bytes, the "Not here, go there: " line, filler lines and END_MARKER,
+//   so that a StreamingBodyVerifier can tell that it arrived whole, see getExpectedFragments()
+// Both are written in writes of writeSize bytes, 8KiB unless given.
+// Sizes are in bytes, the content is ASCII.
+public class SizedScenario
+{
+    public static final String END_MARKER = "-- end --\n";
+    public static final int WRITE_SIZE = 8 * 1024;
+
+    private final long preWriteSize;
+    private final long bodySize;
+    private final int writeSize;
+
+    public SizedScenario(long preWriteSize, long bodySize)
+    {
+        this(preWriteSize, bodySize, WRITE_SIZE);
+    }
+
+    public SizedScenario(long preWriteSize, long bodySize, int writeSize)
+    {
+        if (writeSize < 1)
+            throw new IllegalArgumentException("Invalid write size: " + writeSize);
+        this.preWriteSize = preWriteSize;
+        this.bodySize = bodySize;
+        this.writeSize = writeSize;
+    }
+
+    public long getPreWriteSize()
+    {
+        return preWriteSize;
+    }
+
+    public long getBodySize()
+    {
+        return bodySize;
+    }
+
+    public int getWriteSize()
+    {
+        return writeSize;
+    }
+
+    public List<String> getExpectedFragments()
+    {
+        return Arrays.asList("Not here, go there: https://webtide.com/", END_MARKER);
+    }
+
+    public ServletContextHandler newContextHandler()
+    {
+        ServletContextHandler contextHandler = new ServletContextHandler();
+        contextHandler.setContextPath("/");
+        contextHandler.addServlet(new ServletHolder(new TossServlet(preWriteSize, writeSize)), "/toss/");
+        contextHandler.addServlet(new ServletHolder(new ErrorServlet(bodySize, writeSize)), "/error/");
+
+        ErrorPageErrorHandler errorHandler = new ErrorPageErrorHandler();
+        errorHandler.addErrorPage(301, "/error/");
+        contextHandler.setErrorHandler(errorHandler);
+        return contextHandler;
+    }
+
+    public Handler newHandler(ServerConfig config, Behavior behavior)
+    {
+        return newHandler(config, behavior, AbstractCommonTest.newGzipHandler());
+    }
+
+    public Handler newHandler(ServerConfig config, Behavior behavior, GzipHandler gzipHandler)
+    {
+        return ErrorScenario.withBehavior(config, newContextHandler(), behavior, gzipHandler);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[preWrite=%d,body=%d,write=%d]", getClass().getSimpleName(), preWriteSize, bodySize, writeSize);
+    }
+
+    private static void fill(PrintWriter writer, long size, int writeSize, char c)
+    {
+        char[] buf = new char[(int)Math.min(writeSize, Math.max(size, 1))];
+        Arrays.fill(buf, c);
+        for (long written = 0; written < size; written += buf.length)
+        {
+            writer.write(buf, 0, (int)Math.min(buf.length, size - written));
+        }
+    }
+
+    public static class TossServlet extends HttpServlet
+    {
+        private final long preWriteSize;
+        private final int writeSize;
+
+        public TossServlet(long preWriteSize, int writeSize)
+        {
+            this.preWriteSize = preWriteSize;
+            this.writeSize = writeSize;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+        {
+            resp.setContentType("text/html");
+            resp.setCharacterEncoding("ISO-8859-1");
+            fill(resp.getWriter(), preWriteSize, writeSize, 'x');
+
+            resp.setHeader("Location", "https://webtide.com/");
+            resp.sendError(301);
+        }
+    }
+
+    // Never less than the first line and the END_MARKER
+    public static class ErrorServlet extends HttpServlet
+    {
+        private final long bodySize;
+        private final int writeSize;
+
+        public ErrorServlet(long bodySize, int writeSize)
+        {
+            this.bodySize = bodySize;
+            this.writeSize = writeSize;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+        {
+            resp.setContentType("text/plain");
+            resp.setCharacterEncoding("UTF-8");
+
+            PrintWriter writer = resp.getWriter();
+            String first = "Not here, go there: " + resp.getHeader("Location") + "\n";
+            writer.print(first);
+            fill(writer, bodySize - first.length() - END_MARKER.length(), writeSize, 'y');
+            writer.print(END_MARKER);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+
+// A response listener verifying that the body contains the expected fragments as the content arrives,
+// instead of buffering it for getContentAsString(). The HttpClient has already decoded any gzip content.
+// Holds the FragmentMatcher state and the last bytes of the body, for the assertion messages,
+// whatever the body size.
+public class StreamingBodyVerifier extends Response.Listener.Adapter
+{
+    public static final int DEFAULT_TAIL_SIZE = 256;
+
+    private final FragmentMatcher matcher;
+    private final Charset charset;
+    private final byte[] tail;
+    private final CountDownLatch complete = new CountDownLatch(1);
+    private long tailEnd;
+    private int maxChunkSize;
+    private volatile Result result;
+
+    public StreamingBodyVerifier(Charset charset, List<String> fragments)
+    {
+        this(charset, fragments, DEFAULT_TAIL_SIZE);
+    }
+
+    public StreamingBodyVerifier(Charset charset, List<String> fragments, int tailSize)
+    {
+        if (tailSize < 1)
+            throw new IllegalArgumentException("Invalid tail size: " + tailSize);
+        this.matcher = new FragmentMatcher(charset, fragments);
+        this.charset = charset;
+        this.tail = new byte[tailSize];
+    }
+
+    @Override
+    public void onContent(Response response, ByteBuffer content)
+    {
+        maxChunkSize = Math.max(maxChunkSize, content.remaining());
+        // Only the end of the chunk can make it to the tail
+        int skipped = Math.max(0, content.remaining() - tail.length);
+        tailEnd += skipped;
+        for (int i = content.position() + skipped; i < content.limit(); i++)
+        {
+            tail[(int)(tailEnd++ % tail.length)] = content.get(i);
+        }
+        matcher.update(content);
+    }
+
+    @Override
+    public void onComplete(Result result)
+    {
+        this.result = result;
+        complete.countDown();
+    }
+
+    // The Result, once the response completed or failed
+    public Result await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
+    {
+        if (!complete.await(timeout, unit))
+            throw new TimeoutException("No response after " + timeout + " " + unit);
+        return result;
+    }
+
+    public boolean isAllFound()
+    {
+        return matcher.isAllFound();
+    }
+
+    public List<String> getMissing()
+    {
+        return matcher.getMissing();
+    }
+
+    public long getContentBytes()
+    {
+        return matcher.getScanned();
+    }
+
+    // The largest content chunk the HttpClient notified, what the body costs the client at once
+    public int getMaxChunkSize()
+    {
+        return maxChunkSize;
+    }
+
+    // The last bytes of the body, at most the tail size
+    public String getTail()
+    {
+        int length = (int)Math.min(tailEnd, tail.length);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            bytes[i] = tail[(int)((tailEnd - length + i) % tail.length)];
+        }
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[bytes=%d,missing=%d,tail=%s]", getClass().getSimpleName(), hashCode(),
+            getContentBytes(), getMissing().size(), getTail());
+    }
+}
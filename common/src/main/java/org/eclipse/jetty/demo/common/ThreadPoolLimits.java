@@ -0,0 +1,59 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+
+// Caps the QueuedThreadPool of a server, see JettySpecific.newLimitedServer():
+// - maxThreads, the selectors and acceptors of the connector included
+// - reservedThreads, kept idle for the selectors to hand the connections they select over to, -1 for the heuristic
+//   of the version, 0 for none. 9.4.8 reserves them in the SelectorManager, 9.4.25 and later in the QueuedThreadPool.
+// - queueSize, the jobs waiting for a thread, -1 for an unbounded queue. Once it is full the pool rejects the jobs,
+//   and the connector closes the connections it could not dispatch.
+public class ThreadPoolLimits
+{
+    private final int maxThreads;
+    private final int reservedThreads;
+    private final int queueSize;
+
+    public ThreadPoolLimits(int maxThreads, int reservedThreads, int queueSize)
+    {
+        if (maxThreads <= 0)
+            throw new IllegalArgumentException("maxThreads " + maxThreads);
+        if (queueSize == 0 || queueSize < -1)
+            throw new IllegalArgumentException("queueSize " + queueSize);
+        this.maxThreads = maxThreads;
+        this.reservedThreads = reservedThreads;
+        this.queueSize = queueSize;
+    }
+
+    public int getMaxThreads()
+    {
+        return maxThreads;
+    }
+
+    public int getReservedThreads()
+    {
+        return reservedThreads;
+    }
+
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+
+    // Without the reserved threads, that each version configures its own way
+    public CountingThreadPool newThreadPool()
+    {
+        // The default minThreads, unless over the max
+        int minThreads = Math.min(8, maxThreads);
+        BlockingQueue<Runnable> queue = queueSize < 0 ? null : new BlockingArrayQueue<>(queueSize, 0, queueSize);
+        return new CountingThreadPool(maxThreads, minThreads, queue);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[maxThreads=%d,reservedThreads=%d,queueSize=%d]", getClass().getSimpleName(), maxThreads, reservedThreads, queueSize);
+    }
+}
@@ -0,0 +1,275 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestAttributeEvent;
+import javax.servlet.ServletRequestAttributeListener;
+import javax.servlet.ServletResponse;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+
+// Timestamps the phases of each request on a connector, and keeps the Timeline of the completed ones.
+// The HttpChannel.Listener events come from the connector bean, see register(). The servlet side ones,
+// sendError() and the error page dispatch, need the context to be instrumented, see instrument():
+// - sendError() is when the javax.servlet.error.status_code attribute is first set, which every version does
+//   before dispatching to the error page. It is not seen when sendError() is called outside of a dispatch.
+// - the error dispatch is timed by a Filter on the ERROR dispatches, 9.4.8 forwards to the error page from within
+//   sendError(), 9.4.20 and later dispatch to it once the servlet returned.
+public class TimelineRecorder implements HttpChannel.Listener
+{
+    private static final String ATTRIBUTE = TimelineRecorder.class.getName();
+
+    public enum Event
+    {
+        BEGIN,
+        HANDLE,
+        SEND_ERROR,
+        ERROR_DISPATCH_BEGIN,
+        ERROR_DISPATCH_END,
+        COMMIT,
+        FIRST_CONTENT,
+        LAST_CONTENT,
+        RESPONSE_END,
+        FAILURE,
+        COMPLETE
+    }
+
+    // The time between two events of a Timeline, when both happened
+    public enum Phase
+    {
+        // Parsing the request headers up to the handler
+        QUEUE(Event.BEGIN, Event.HANDLE),
+        // The servlet, until it calls sendError()
+        APPLICATION(Event.HANDLE, Event.SEND_ERROR),
+        // From sendError() to the error page dispatch
+        ERROR_WAIT(Event.SEND_ERROR, Event.ERROR_DISPATCH_BEGIN),
+        ERROR_PAGE(Event.ERROR_DISPATCH_BEGIN, Event.ERROR_DISPATCH_END),
+        TIME_TO_COMMIT(Event.BEGIN, Event.COMMIT),
+        // From the first to the last content handed to the transport
+        CONTENT(Event.FIRST_CONTENT, Event.LAST_CONTENT),
+        // From the end of the response to the recycling of the channel
+        COMPLETION(Event.RESPONSE_END, Event.COMPLETE),
+        TOTAL(Event.BEGIN, Event.COMPLETE);
+
+        private final Event from;
+        private final Event to;
+
+        Phase(Event from, Event to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        // Nanoseconds, -1 when the phase did not happen
+        public long getDuration(Timeline timeline)
+        {
+            long begin = timeline.getNanos(from);
+            long end = timeline.getNanos(to);
+            if (begin == 0 || end == 0 || end < begin)
+                return -1;
+            return end - begin;
+        }
+    }
+
+    private final Queue<Timeline> timelines = new ConcurrentLinkedQueue<>();
+
+    // Adds a TimelineRecorder to the connector, if config.isTimeline(). Called by every JettySpecific.
+    public static void register(ServerConfig config, Connector connector)
+    {
+        if (config.isTimeline())
+            connector.addBean(new TimelineRecorder());
+    }
+
+    // Adds the sendError() and error dispatch events to the requests of the context
+    public static void instrument(ServletContextHandler contextHandler)
+    {
+        contextHandler.addEventListener(new SendErrorListener());
+        contextHandler.addFilter(new FilterHolder(new ErrorDispatchFilter()), "/*", EnumSet.of(DispatcherType.ERROR));
+    }
+
+    private static void mark(ServletRequest request, Event event)
+    {
+        Object timeline = request.getAttribute(ATTRIBUTE);
+        if (timeline instanceof Timeline)
+            ((Timeline)timeline).mark(event);
+    }
+
+    // The completed timelines since the last call
+    public List<Timeline> drain()
+    {
+        List<Timeline> drained = new ArrayList<>();
+        for (Timeline timeline = timelines.poll(); timeline != null; timeline = timelines.poll())
+        {
+            drained.add(timeline);
+        }
+        return drained;
+    }
+
+    @Override
+    public void onRequestBegin(Request request)
+    {
+        Timeline timeline = new Timeline();
+        timeline.mark(Event.BEGIN);
+        request.setAttribute(ATTRIBUTE, timeline);
+    }
+
+    @Override
+    public void onBeforeDispatch(Request request)
+    {
+        // Only the first dispatch, the async and error ones are later ones
+        mark(request, Event.HANDLE);
+    }
+
+    @Override
+    public void onResponseCommit(Request request)
+    {
+        mark(request, Event.COMMIT);
+    }
+
+    @Override
+    public void onResponseContent(Request request, ByteBuffer content)
+    {
+        Object timeline = request.getAttribute(ATTRIBUTE);
+        if (timeline instanceof Timeline)
+            ((Timeline)timeline).content(content.remaining());
+    }
+
+    @Override
+    public void onResponseEnd(Request request)
+    {
+        mark(request, Event.RESPONSE_END);
+    }
+
+    @Override
+    public void onResponseFailure(Request request, Throwable failure)
+    {
+        mark(request, Event.FAILURE);
+    }
+
+    @Override
+    public void onComplete(Request request)
+    {
+        Object timeline = request.getAttribute(ATTRIBUTE);
+        if (timeline instanceof Timeline)
+        {
+            ((Timeline)timeline).mark(Event.COMPLETE);
+            timelines.add((Timeline)timeline);
+        }
+    }
+
+    // System.nanoTime() of each event, 0 if it did not happen. The events can come from different threads.
+    public static class Timeline
+    {
+        private final AtomicLongArray nanos = new AtomicLongArray(Event.values().length);
+        private final AtomicInteger contents = new AtomicInteger();
+
+        // Only the first time, but for LAST_CONTENT
+        private void mark(Event event)
+        {
+            nanos.compareAndSet(event.ordinal(), 0, System.nanoTime());
+        }
+
+        private void content(int bytes)
+        {
+            long now = System.nanoTime();
+            nanos.compareAndSet(Event.FIRST_CONTENT.ordinal(), 0, now);
+            nanos.set(Event.LAST_CONTENT.ordinal(), now);
+            contents.incrementAndGet();
+        }
+
+        public long getNanos(Event event)
+        {
+            return nanos.get(event.ordinal());
+        }
+
+        public boolean has(Event event)
+        {
+            return getNanos(event) != 0;
+        }
+
+        // How many times content was handed to the transport, empty ones included
+        public int getContents()
+        {
+            return contents.get();
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder(getClass().getSimpleName()).append("[");
+            long begin = getNanos(Event.BEGIN);
+            for (Event event : Event.values())
+            {
+                if (has(event))
+                    builder.append(event).append("=+").append((getNanos(event) - begin) / 1000).append("us,");
+            }
+            return builder.append("contents=").append(getContents()).append("]").toString();
+        }
+    }
+
+    private static class SendErrorListener implements ServletRequestAttributeListener
+    {
+        @Override
+        public void attributeAdded(ServletRequestAttributeEvent event)
+        {
+            if (RequestDispatcher.ERROR_STATUS_CODE.equals(event.getName()))
+                mark(event.getServletRequest(), Event.SEND_ERROR);
+        }
+
+        @Override
+        public void attributeRemoved(ServletRequestAttributeEvent event)
+        {
+        }
+
+        @Override
+        public void attributeReplaced(ServletRequestAttributeEvent event)
+        {
+            attributeAdded(event);
+        }
+    }
+
+    private static class ErrorDispatchFilter implements Filter
+    {
+        @Override
+        public void init(FilterConfig filterConfig)
+        {
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException
+        {
+            mark(request, Event.ERROR_DISPATCH_BEGIN);
+            try
+            {
+                chain.doFilter(request, response);
+            }
+            finally
+            {
+                mark(request, Event.ERROR_DISPATCH_END);
+            }
+        }
+
+        @Override
+        public void destroy()
+        {
+        }
+    }
+}
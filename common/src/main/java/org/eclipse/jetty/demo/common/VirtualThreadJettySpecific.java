@@ -0,0 +1,99 @@
+package org.eclipse.jetty.demo.common;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+// The JettySpecific of the version under test, with the servers on a VirtualThreadPool.
+// Selected with ServerConfig.withVirtualThreads(), or -Djetty.demo.virtualThreads=true.
+// Refuses a JVM without virtual threads, rather than running on the platform fallback of the pool
+// with the results still labelled virtual.
+public class VirtualThreadJettySpecific implements JettySpecific
+{
+    private final JettySpecific delegate;
+
+    protected VirtualThreadJettySpecific(JettySpecific delegate)
+    {
+        if (!VirtualThreadPool.isSupported())
+            throw new IllegalStateException("Virtual threads need Java 21+, this JVM is " + System.getProperty("java.version"));
+        this.delegate = delegate;
+    }
+
+    // The delegate, on virtual threads if its ServerConfig says so. Called by the withConfig() of every JettySpecific.
+    // An H2cJettySpecific when the delegate is one.
+    public static JettySpecific of(JettySpecific delegate)
+    {
+        if (!delegate.getConfig().isVirtualThreads())
+            return delegate;
+        if (delegate instanceof H2cJettySpecific)
+            return new H2c((H2cJettySpecific)delegate);
+        return new VirtualThreadJettySpecific(delegate);
+    }
+
+    @Override
+    public ServerConfig getConfig()
+    {
+        return delegate.getConfig();
+    }
+
+    @Override
+    public JettySpecific withConfig(ServerConfig config)
+    {
+        return delegate.withConfig(config);
+    }
+
+    @Override
+    public Server newServer()
+    {
+        return newServer(new VirtualThreadPool());
+    }
+
+    @Override
+    public Server newServer(ThreadPool threadPool)
+    {
+        return delegate.newServer(threadPool);
+    }
+
+    // Capping the threads only makes sense for a QueuedThreadPool
+    @Override
+    public Server newLimitedServer(ThreadPoolLimits limits)
+    {
+        return delegate.newLimitedServer(limits);
+    }
+
+    // The LocalConnector handles most requests in the thread that sends them, the pool matters little
+    @Override
+    public Server newLocalServer()
+    {
+        return delegate.newLocalServer();
+    }
+
+    @Override
+    public HttpClient newClient()
+    {
+        return delegate.newClient();
+    }
+
+    private static class H2c extends VirtualThreadJettySpecific implements H2cJettySpecific
+    {
+        private final H2cJettySpecific delegate;
+
+        private H2c(H2cJettySpecific delegate)
+        {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Server newH2cServer(ThreadPool threadPool)
+        {
+            return delegate.newH2cServer(threadPool == null ? new VirtualThreadPool() : threadPool);
+        }
+
+        @Override
+        public HttpClient newH2cClient()
+        {
+            return delegate.newH2cClient();
+        }
+    }
+}
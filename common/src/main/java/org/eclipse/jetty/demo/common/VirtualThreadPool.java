@@ -0,0 +1,157 @@
+package org.eclipse.jetty.demo.common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+// A thread per task ThreadPool, on virtual threads when the JVM has them (Java 21+).
+// The build targets Java 8, so Thread.ofVirtual() and Executors.newThreadPerTaskExecutor() are looked up
+// reflectively, older JVMs fall back to an unbounded cached pool of platform threads, see isVirtual().
+// Threads are named <name>-<n> like the QueuedThreadPool ones, but the JVM does not report the CPU time
+// or allocations of virtual threads, so only the platform fallback shows up in the benchmarks attribution.
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool
+{
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private String name = "vtp" + hashCode();
+    private ExecutorService executor;
+    private boolean virtual;
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        this.name = name;
+    }
+
+    // Whether the tasks run on virtual threads, only known once started
+    public boolean isVirtual()
+    {
+        return virtual;
+    }
+
+    // Whether this JVM has virtual threads, ie: whether a started pool will be virtual
+    public static boolean isSupported()
+    {
+        ExecutorService executor = newVirtualThreadExecutor("probe");
+        if (executor == null)
+            return false;
+        executor.shutdown();
+        return true;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        executor = newVirtualThreadExecutor(name);
+        virtual = executor != null;
+        if (executor == null)
+        {
+            AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(task ->
+            {
+                Thread thread = new Thread(task, name + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        super.doStart();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor(String name)
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService)newThreadPerTaskExecutor.invoke(null, factory);
+        }
+        catch (ReflectiveOperationException | LinkageError x)
+        {
+            return null;
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        ExecutorService executor = this.executor;
+        this.executor = null;
+        if (executor != null)
+        {
+            executor.shutdown();
+            if (!executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS))
+                executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        executor.execute(() ->
+        {
+            activeTasks.incrementAndGet();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                activeTasks.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException
+    {
+        ExecutorService executor = this.executor;
+        if (executor != null)
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    // One thread per running task
+    @Override
+    public int getThreads()
+    {
+        ExecutorService executor = this.executor;
+        if (executor instanceof ThreadPoolExecutor)
+            return ((ThreadPoolExecutor)executor).getPoolSize();
+        return activeTasks.get();
+    }
+
+    // Only the platform fallback keeps idle threads around
+    @Override
+    public int getIdleThreads()
+    {
+        return Math.max(0, getThreads() - activeTasks.get());
+    }
+
+    // Never, there is no maximum
+    @Override
+    public boolean isLowOnThreads()
+    {
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[%s,virtual=%b,active=%d]", getClass().getSimpleName(), name, virtual, activeTasks.get());
+    }
+}
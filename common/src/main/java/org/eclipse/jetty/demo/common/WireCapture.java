@@ -0,0 +1,343 @@
+package org.eclipse.jetty.demo.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Every byte of one response as the WireClient read it, with the time and size of each TCP read.
+// Only what is needed to find the end of the response is parsed as the bytes arrive: the end of the headers,
+// then the Content-Length or the chunk size lines. The rest is left to RawHttpResponse, see getResponse().
+// Times are System.nanoTime() offsets from the moment the request was written.
+public class WireCapture
+{
+    private enum State
+    {
+        HEADERS,
+        CONTENT_LENGTH,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_END,
+        LAST_CHUNK_END,
+        EOF_DELIMITED,
+        COMPLETE
+    }
+
+    private final long sendNanos;
+    private final List<Read> reads = new ArrayList<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private byte[] bytes = new byte[4096];
+    private int length;
+    // Parser state, position is the first byte not parsed yet
+    private State state = State.HEADERS;
+    private int position;
+    private long remaining;
+    private int headerLength = -1;
+    private long headersNanos = -1;
+    private long firstContentNanos = -1;
+    private long completeNanos = -1;
+    private long closeNanos = -1;
+    private boolean timedOut;
+
+    public WireCapture(long sendNanos)
+    {
+        this.sendNanos = sendNanos;
+    }
+
+    void onRead(long nanos, ByteBuffer buffer)
+    {
+        int size = buffer.remaining();
+        reads.add(new Read(nanos - sendNanos, length, size));
+        if (length + size > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+        buffer.get(bytes, length, size);
+        length += size;
+        parse(nanos - sendNanos);
+    }
+
+    void onClose(long nanos)
+    {
+        if (closeNanos < 0)
+            closeNanos = nanos - sendNanos;
+        if (state == State.EOF_DELIMITED)
+        {
+            state = State.COMPLETE;
+            completeNanos = closeNanos;
+        }
+    }
+
+    void onTimeout()
+    {
+        timedOut = true;
+    }
+
+    private void parse(long nanos)
+    {
+        while (position < length && state != State.COMPLETE)
+        {
+            switch (state)
+            {
+                case HEADERS:
+                {
+                    int end = indexOf(Math.max(0, position - 3), "\r\n\r\n");
+                    if (end < 0)
+                    {
+                        position = length;
+                        return;
+                    }
+                    headerLength = end + 4;
+                    headersNanos = nanos;
+                    position = headerLength;
+                    String headers = new String(bytes, 0, end, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ENGLISH);
+                    if (headers.matches("(?s).*\r\ntransfer-encoding:[^\r]*chunked.*"))
+                    {
+                        state = State.CHUNK_SIZE;
+                    }
+                    else if (headers.contains("\r\ncontent-length:"))
+                    {
+                        int start = headers.indexOf("\r\ncontent-length:") + "\r\ncontent-length:".length();
+                        int lineEnd = headers.indexOf("\r\n", start);
+                        remaining = Long.parseLong(headers.substring(start, lineEnd < 0 ? headers.length() : lineEnd).trim());
+                        state = State.CONTENT_LENGTH;
+                        if (remaining == 0)
+                            complete(nanos);
+                    }
+                    else
+                    {
+                        state = State.EOF_DELIMITED;
+                    }
+                    break;
+                }
+                case CONTENT_LENGTH:
+                {
+                    int available = (int)Math.min(remaining, length - position);
+                    content(nanos);
+                    position += available;
+                    remaining -= available;
+                    if (remaining == 0)
+                        complete(nanos);
+                    break;
+                }
+                case CHUNK_SIZE:
+                {
+                    int end = indexOf(position, "\r\n");
+                    if (end < 0)
+                        return;
+                    String line = new String(bytes, position, end - position, StandardCharsets.ISO_8859_1);
+                    int semicolon = line.indexOf(';');
+                    remaining = Long.parseLong((semicolon < 0 ? line : line.substring(0, semicolon)).trim(), 16);
+                    chunks.add(new Chunk(nanos, (int)remaining));
+                    position = end + 2;
+                    state = remaining == 0 ? State.LAST_CHUNK_END : State.CHUNK_DATA;
+                    break;
+                }
+                case CHUNK_DATA:
+                {
+                    int available = (int)Math.min(remaining, length - position);
+                    content(nanos);
+                    position += available;
+                    remaining -= available;
+                    if (remaining == 0)
+                        state = State.CHUNK_END;
+                    break;
+                }
+                case CHUNK_END:
+                case LAST_CHUNK_END:
+                {
+                    // No trailers are expected, just the CRLF
+                    if (length - position < 2)
+                        return;
+                    position += 2;
+                    if (state == State.LAST_CHUNK_END)
+                        complete(nanos);
+                    else
+                        state = State.CHUNK_SIZE;
+                    break;
+                }
+                case EOF_DELIMITED:
+                {
+                    content(nanos);
+                    position = length;
+                    break;
+                }
+                default:
+                    return;
+            }
+        }
+    }
+
+    private void content(long nanos)
+    {
+        if (firstContentNanos < 0)
+            firstContentNanos = nanos;
+    }
+
+    private void complete(long nanos)
+    {
+        state = State.COMPLETE;
+        completeNanos = nanos;
+    }
+
+    private int indexOf(int from, String token)
+    {
+        byte[] search = token.getBytes(StandardCharsets.ISO_8859_1);
+        outer:
+        for (int i = from; i <= length - search.length; i++)
+        {
+            for (int j = 0; j < search.length; j++)
+            {
+                if (bytes[i + j] != search[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // The whole response was read, as framed by its headers
+    public boolean isComplete()
+    {
+        return state == State.COMPLETE;
+    }
+
+    public boolean isClosed()
+    {
+        return closeNanos >= 0;
+    }
+
+    public boolean isTimedOut()
+    {
+        return timedOut;
+    }
+
+    public RawHttpResponse getResponse()
+    {
+        return RawHttpResponse.parse(ByteBuffer.wrap(bytes, 0, length));
+    }
+
+    public List<Read> getReads()
+    {
+        return Collections.unmodifiableList(reads);
+    }
+
+    // The chunks as framed on the wire, including the terminal empty one, empty if not chunked
+    public List<Chunk> getChunks()
+    {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    public long getBytes()
+    {
+        return length;
+    }
+
+    // -1 for the sizes and times below when it did not happen
+    public int getHeaderLength()
+    {
+        return headerLength;
+    }
+
+    public long getTimeToFirstByte()
+    {
+        return reads.isEmpty() ? -1 : reads.get(0).getNanos();
+    }
+
+    // When the end of the headers was read
+    public long getTimeToHeaders()
+    {
+        return headersNanos;
+    }
+
+    public long getTimeToFirstContent()
+    {
+        return firstContentNanos;
+    }
+
+    // When the last byte of the response was read, or the close of an EOF delimited one
+    public long getTimeToLastByte()
+    {
+        return completeNanos;
+    }
+
+    public long getTimeToClose()
+    {
+        return closeNanos;
+    }
+
+    // The headers came in a read of their own, ahead of the content: the response was committed before
+    // its content was ready, eg: a flush of the headers followed by the error page
+    public boolean isHeadersAlone()
+    {
+        for (Read read : reads)
+        {
+            if (read.getOffset() + read.getSize() == headerLength)
+                return firstContentNanos >= 0;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[bytes=%d,reads=%d,chunks=%d,complete=%b,closed=%b,ttfb=%dus,ttlb=%dus]",
+            getClass().getSimpleName(), hashCode(), length, reads.size(), chunks.size(), isComplete(), isClosed(),
+            getTimeToFirstByte() / 1000, getTimeToLastByte() / 1000);
+    }
+
+    // One read from the SocketChannel
+    public static class Read
+    {
+        private final long nanos;
+        private final int offset;
+        private final int size;
+
+        private Read(long nanos, int offset, int size)
+        {
+            this.nanos = nanos;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        // Offset of the first byte of the read in the response
+        public int getOffset()
+        {
+            return offset;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+    }
+
+    // A chunk size line, with the time of the read that completed it
+    public static class Chunk
+    {
+        private final long nanos;
+        private final int size;
+
+        private Chunk(long nanos, int size)
+        {
+            this.nanos = nanos;
+            this.size = size;
+        }
+
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// A non-blocking SocketChannel client recording the response bytes as they come off the wire, see WireCapture.
+// Unlike the HttpClient from newClient(), nothing is decoded, so the empty chunks, the headers flushed ahead of
+// the content and the connection closes are all visible, and the times are not those of a parser.
+// Keeps the connection open while the server does, like LocalClient. Sends the same Accept-Encoding as HttpClient.
+// Speaks HTTP/1.1 only, an h2c server answers it as HTTP/1.1 too. Not thread safe.
+public class WireClient implements AutoCloseable
+{
+    // The close of a response with Connection: close is waited for that long, after its last byte
+    private static final long CLOSE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final InetSocketAddress address;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private Selector selector;
+    private SocketChannel channel;
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(10);
+    private int connects;
+
+    public WireClient(URI serverURI)
+    {
+        this.address = new InetSocketAddress(serverURI.getHost(), serverURI.getPort());
+    }
+
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    // How many connections were opened so far
+    public int getConnects()
+    {
+        return connects;
+    }
+
+    public WireCapture GET(String pathQuery) throws IOException
+    {
+        WireCapture capture = send(pathQuery);
+        // The server closed the idle connection while the request was sent, once is enough
+        if (capture.getBytes() == 0 && capture.isClosed())
+            capture = send(pathQuery);
+        return capture;
+    }
+
+    private WireCapture send(String pathQuery) throws IOException
+    {
+        if (channel == null)
+            connect();
+
+        ByteBuffer request = ByteBuffer.wrap(("GET " + pathQuery + " HTTP/1.1\r\n" +
+            "Host: " + address.getHostString() + ":" + address.getPort() + "\r\n" +
+            "Accept-Encoding: gzip\r\n" +
+            "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        while (request.hasRemaining())
+        {
+            channel.write(request);
+        }
+        WireCapture capture = new WireCapture(System.nanoTime());
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (!capture.isComplete())
+        {
+            if (!read(capture, deadline))
+                break;
+        }
+        if (capture.isComplete() && !capture.isClosed() && capture.getResponse().isConnectionClose())
+        {
+            deadline = System.nanoTime() + CLOSE_WAIT_NANOS;
+            while (!capture.isClosed())
+            {
+                if (!read(capture, deadline))
+                    break;
+            }
+        }
+        if (capture.isClosed() || !capture.isComplete())
+            close();
+        return capture;
+    }
+
+    // False once the connection is closed or the deadline passed
+    private boolean read(WireCapture capture, long deadline) throws IOException
+    {
+        long wait = deadline - System.nanoTime();
+        if (wait <= 0 || selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait))) == 0)
+        {
+            if (System.nanoTime() - deadline >= 0)
+            {
+                capture.onTimeout();
+                return false;
+            }
+            return true;
+        }
+        selector.selectedKeys().clear();
+        while (true)
+        {
+            buffer.clear();
+            int read;
+            try
+            {
+                read = channel.read(buffer);
+            }
+            catch (IOException x)
+            {
+                // Reset by the server, eg: an aborted response
+                read = -1;
+            }
+            long now = System.nanoTime();
+            if (read < 0)
+            {
+                capture.onClose(now);
+                return false;
+            }
+            if (read == 0)
+                return true;
+            buffer.flip();
+            capture.onRead(now, buffer);
+        }
+    }
+
+    private void connect() throws IOException
+    {
+        selector = Selector.open();
+        channel = SocketChannel.open();
+        channel.socket().setTcpNoDelay(true);
+        channel.connect(address);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        connects++;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (channel != null)
+        {
+            channel.close();
+            selector.close();
+            channel = null;
+            selector = null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.jetty.io.ChannelEndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+
+// Counts the EndPoint.flush() calls of a ServerConnector, each one being a write, or a gathering write, to the socket.
+// For every flush: the buffers handed over, the bytes written, whether it wrote everything (an incomplete flush
+// is retried once the socket is writable again) and the bytes per flush, by power of two.
+// The counts are for all the connections of the connector, run the requests one after the other to get them per request.
+public class WriteCounter
+{
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong buffers = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong emptyFlushes = new AtomicLong();
+    private final AtomicLong incompleteFlushes = new AtomicLong();
+    // Bucket n counts the flushes of [2^(n-1), 2^n) bytes, bucket 0 the empty ones
+    private final AtomicLongArray sizes = new AtomicLongArray(64);
+
+    // A ServerConnector counting its writes if the config says so, a plain one otherwise,
+    // with the ByteBufferPool of CountingByteBufferPool.newByteBufferPool(). Called by every JettySpecific.
+    public static ServerConnector newServerConnector(ServerConfig config, Server server, ConnectionFactory... factories)
+    {
+        if (config.isWriteCounting())
+            return newCountingServerConnector(config, server, factories);
+        return new ServerConnector(server, null, null, CountingByteBufferPool.newByteBufferPool(config), -1, -1, factories);
+    }
+
+    // A ServerConnector with a WriteCounter bean counting the writes of its endpoints
+    private static ServerConnector newCountingServerConnector(ServerConfig config, Server server, ConnectionFactory... factories)
+    {
+        WriteCounter counter = new WriteCounter();
+        ServerConnector connector = new ServerConnector(server, null, null, CountingByteBufferPool.newByteBufferPool(config), -1, -1, factories)
+        {
+            @Override
+            protected ChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key)
+            {
+                CountingEndPoint endPoint = new CountingEndPoint(channel, selectSet, key, this, counter);
+                endPoint.setIdleTimeout(getIdleTimeout());
+                return endPoint;
+            }
+        };
+        connector.addBean(counter);
+        return connector;
+    }
+
+    private void onFlush(int bufferCount, long written, boolean complete)
+    {
+        flushes.incrementAndGet();
+        buffers.addAndGet(bufferCount);
+        bytes.addAndGet(written);
+        if (written == 0)
+            emptyFlushes.incrementAndGet();
+        if (!complete)
+            incompleteFlushes.incrementAndGet();
+        sizes.incrementAndGet(64 - Long.numberOfLeadingZeros(written));
+    }
+
+    public long getFlushes()
+    {
+        return flushes.get();
+    }
+
+    public long getBuffers()
+    {
+        return buffers.get();
+    }
+
+    public long getBytes()
+    {
+        return bytes.get();
+    }
+
+    // Flushes that wrote nothing, eg: of empty buffers only
+    public long getEmptyFlushes()
+    {
+        return emptyFlushes.get();
+    }
+
+    public long getIncompleteFlushes()
+    {
+        return incompleteFlushes.get();
+    }
+
+    // The flushes of [2^(bucket-1), 2^bucket) bytes, bucket 0 being the empty ones
+    public long getFlushes(int bucket)
+    {
+        return sizes.get(bucket);
+    }
+
+    public int getBuckets()
+    {
+        return sizes.length();
+    }
+
+    public void reset()
+    {
+        flushes.set(0);
+        buffers.set(0);
+        bytes.set(0);
+        emptyFlushes.set(0);
+        incompleteFlushes.set(0);
+        for (int i = 0; i < sizes.length(); i++)
+        {
+            sizes.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[flushes=%d,buffers=%d,bytes=%d,empty=%d,incomplete=%d]", getClass().getSimpleName(),
+            hashCode(), getFlushes(), getBuffers(), getBytes(), getEmptyFlushes(), getIncompleteFlushes());
+    }
+
+    private static class CountingEndPoint extends SocketChannelEndPoint
+    {
+        private final WriteCounter counter;
+
+        private CountingEndPoint(SocketChannel channel, ManagedSelector selector, SelectionKey key, ServerConnector connector, WriteCounter counter)
+        {
+            super(channel, selector, key, connector.getScheduler());
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean flush(ByteBuffer... buffers) throws IOException
+        {
+            long before = remaining(buffers);
+            boolean complete = super.flush(buffers);
+            counter.onFlush(buffers.length, before - remaining(buffers), complete);
+            return complete;
+        }
+
+        private static long remaining(ByteBuffer[] buffers)
+        {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers)
+            {
+                if (buffer != null)
+                    remaining += buffer.remaining();
+            }
+            return remaining;
+        }
+    }
+}
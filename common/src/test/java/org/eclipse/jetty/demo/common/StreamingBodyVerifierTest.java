@@ -0,0 +1,160 @@
+package org.eclipse.jetty.demo.common;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+// StreamingBodyVerifier and FragmentMatcher do not depend on the Jetty version under test,
+// the large error body is served by the Jetty the common module is built with
+public class StreamingBodyVerifierTest
+{
+    // -Djetty.demo.largeBodySize sets the error page size, eg: 536870912 for 512MiB
+    public static final long LARGE_BODY_SIZE = Long.getLong("jetty.demo.largeBodySize", 16 * 1024 * 1024);
+    private static final int LINE_SIZE = 1024;
+    private static final int LINES_PER_MARKER = 1024;
+
+    private Server server;
+    private HttpClient client;
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(client);
+        LifeCycle.stop(server);
+    }
+
+    @Test
+    public void testFragmentsAcrossChunks()
+    {
+        String body = "Not here, go there: https://webtide.com/\n" + repeat('a', 300) + "\n" + repeat('b', 300) + "\nabcabd";
+        List<String> fragments = Arrays.asList("Not here, go there: https://webtide.com/", repeat('a', 300), repeat('b', 300), "abd", "bca");
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++)
+        {
+            FragmentMatcher matcher = new FragmentMatcher(StandardCharsets.UTF_8, fragments);
+            for (int offset = 0; offset < bytes.length; offset += chunkSize)
+            {
+                matcher.update(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+            }
+            assertThat("missing with chunks of " + chunkSize, matcher.getMissing(), is(empty()));
+        }
+
+        FragmentMatcher matcher = new FragmentMatcher(StandardCharsets.UTF_8, "abd", repeat('a', 301), "xyz");
+        matcher.update(ByteBuffer.wrap(bytes));
+        assertThat("missing", matcher.getMissing(), contains(repeat('a', 301), "xyz"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Behavior.class)
+    public void testLargeErrorBody(Behavior behavior) throws Exception
+    {
+        ServletContextHandler contextHandler = new ServletContextHandler();
+        contextHandler.setContextPath("/");
+        contextHandler.addServlet(TossErrorServlet.class, "/toss/");
+        contextHandler.addServlet(LargeErrorServlet.class, "/error/");
+        ErrorPageErrorHandler errorHandler = new ErrorPageErrorHandler();
+        errorHandler.addErrorPage(301, "/error/");
+        contextHandler.setErrorHandler(errorHandler);
+        server = new Server();
+        server.addConnector(new ServerConnector(server));
+        server.setHandler(ErrorScenario.withBehavior(new ServerConfig(), contextHandler, behavior, AbstractCommonTest.newGzipHandler()));
+        server.start();
+        client = new HttpClient();
+        client.setFollowRedirects(false);
+        client.start();
+
+        List<String> fragments = new ArrayList<>();
+        fragments.add("Not here, go there: https://webtide.com/");
+        for (long marker = 0; marker < LARGE_BODY_SIZE / LINE_SIZE / LINES_PER_MARKER; marker++)
+        {
+            fragments.add(marker(marker));
+        }
+        fragments.add("-- end --");
+        StreamingBodyVerifier verifier = new StreamingBodyVerifier(StandardCharsets.UTF_8, fragments);
+        client.newRequest(server.getURI().resolve("/toss/")).send(verifier);
+        Result result = verifier.await(LARGE_BODY_SIZE / (1024 * 1024) + 30, TimeUnit.SECONDS);
+
+        assertThat("response.failure", result.getFailure(), is(nullValue()));
+        assertThat("response.status", result.getResponse().getStatus(), is(301));
+        assertThat("response.body " + verifier, verifier.getMissing(), is(empty()));
+        assertThat("response.body", verifier.getTail(), endsWith("-- end --\n"));
+        // Nothing buffers the body on the way to the verifier
+        assertThat("response.chunk", verifier.getMaxChunkSize(), lessThanOrEqualTo(1024 * 1024));
+    }
+
+    private static String marker(long marker)
+    {
+        return String.format("-- marker %08d --", marker);
+    }
+
+    private static String repeat(char c, int count)
+    {
+        return String.join("", Collections.nCopies(count, String.valueOf(c)));
+    }
+
+    public static class TossErrorServlet extends HttpServlet
+    {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+        {
+            resp.setHeader("Location", "https://webtide.com/");
+            resp.sendError(301);
+        }
+    }
+
+    // LARGE_BODY_SIZE bytes of lines, with a marker line every LINES_PER_MARKER lines
+    public static class LargeErrorServlet extends HttpServlet
+    {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+        {
+            resp.setContentType("text/plain");
+            resp.setCharacterEncoding("UTF-8");
+
+            PrintWriter writer = resp.getWriter();
+            writer.print("Not here, go there: " + resp.getHeader("Location") + "\n");
+            char[] line = new char[LINE_SIZE];
+            Arrays.fill(line, 'x');
+            line[LINE_SIZE - 1] = '\n';
+            long lines = LARGE_BODY_SIZE / LINE_SIZE;
+            for (long i = 0; i < lines; i++)
+            {
+                if (i % LINES_PER_MARKER == 0)
+                    writer.print(marker(i / LINES_PER_MARKER) + "\n");
+                writer.write(line);
+            }
+            writer.print("-- end --\n");
+        }
+    }
+}
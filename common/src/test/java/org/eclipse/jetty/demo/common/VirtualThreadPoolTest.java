@@ -0,0 +1,78 @@
+package org.eclipse.jetty.demo.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadPoolTest
+{
+    // Thread.ofVirtual() is final since Java 21
+    private static final boolean HAS_VIRTUAL_THREADS = getJavaFeatureVersion() >= 21;
+
+    private VirtualThreadPool threadPool;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        threadPool = new VirtualThreadPool();
+        threadPool.setName("test");
+        threadPool.start();
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        LifeCycle.stop(threadPool);
+    }
+
+    // "1.8" up to Java 8, "9", "11", "21" since
+    private static int getJavaFeatureVersion()
+    {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private Thread runOnPool() throws Exception
+    {
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+        threadPool.execute(() -> thread.complete(Thread.currentThread()));
+        return thread.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testIsVirtualMatchesRuntime()
+    {
+        assertThat(threadPool.toString(), threadPool.isVirtual(), is(HAS_VIRTUAL_THREADS));
+        assertThat("supported", VirtualThreadPool.isSupported(), is(HAS_VIRTUAL_THREADS));
+    }
+
+    @Test
+    public void testRunsOnVirtualThreads() throws Exception
+    {
+        assumeTrue(HAS_VIRTUAL_THREADS, "virtual threads need Java 21+");
+
+        Thread thread = runOnPool();
+        assertThat(thread.toString(), (Boolean)Thread.class.getMethod("isVirtual").invoke(thread), is(true));
+        assertThat(thread.getName(), startsWith("test-"));
+    }
+
+    @Test
+    public void testFallsBackToPlatformThreads() throws Exception
+    {
+        assumeFalse(HAS_VIRTUAL_THREADS, "virtual threads available");
+
+        Thread thread = runOnPool();
+        assertThat(thread.toString(), thread.isDaemon(), is(true));
+        assertThat(thread.getName(), startsWith("test-"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.eclipse.jetty.demo.common;
+
+import org.eclipse.jetty.demo.common.WireCapture.Chunk;
+import org.eclipse.jetty.demo.common.AbstractCommonTest.Behavior;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+// WireClient does not depend on the Jetty version under test, the scenarios are served by the Jetty
+// the common module is built with, with the default buffer sizes of AbstractCommonTest
+public class WireClientTest
+{
+    private Server server;
+    private WireClient client;
+
+    @AfterEach
+    public void teardown() throws Exception
+    {
+        if (client != null)
+            client.close();
+        LifeCycle.stop(server);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ErrorScenario.class)
+    public void testCapture(ErrorScenario scenario) throws Exception
+    {
+        server = new Server();
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        httpConfiguration.setOutputBufferSize(AbstractCommonTest.OUTPUT_BUFFER_SIZE);
+        httpConfiguration.setOutputAggregationSize(AbstractCommonTest.OUTPUT_AGGREGATION_SIZE);
+        server.addConnector(new ServerConnector(server, new HttpConnectionFactory(httpConfiguration)));
+        server.setHandler(scenario.newHandler(new ServerConfig(), Behavior.PLAIN));
+        server.start();
+        client = new WireClient(server.getURI());
+
+        WireCapture capture = client.GET("/toss/");
+        RawHttpResponse response = capture.getResponse();
+
+        assertThat("timed out " + capture, capture.isTimedOut(), is(false));
+        assertThat("ttfb " + capture, capture.getTimeToFirstByte(), greaterThan(0L));
+        assertThat("reads " + capture, capture.getReads().size(), greaterThan(0));
+        if (scenario.getOutcome() == ErrorScenario.Outcome.ABORTED)
+        {
+            assertThat("complete " + capture, capture.isComplete(), is(false));
+            assertThat("closed " + capture, capture.isClosed(), is(true));
+            assertThat("response.complete", response.isComplete(), is(false));
+            return;
+        }
+
+        assertThat("complete " + capture, capture.isComplete(), is(true));
+        assertThat("response.complete", response.isComplete(), is(true));
+        assertThat("response.status", response.getStatus(), is(301));
+        assertThat("ttlb " + capture, capture.getTimeToLastByte(), greaterThanOrEqualTo(capture.getTimeToFirstByte()));
+        assertThat("headers " + capture, capture.getTimeToHeaders(), lessThanOrEqualTo(capture.getTimeToLastByte()));
+
+        // The wire framing adds up to what RawHttpResponse parsed
+        long chunked = capture.getChunks().stream().mapToLong(Chunk::getSize).sum();
+        if (!capture.getChunks().isEmpty())
+        {
+            assertThat("chunked", chunked, is((long)response.getContentBytes().length));
+            assertThat("last chunk", capture.getChunks().get(capture.getChunks().size() - 1).getSize(), is(0));
+        }
+        long read = capture.getReads().stream().mapToLong(WireCapture.Read::getSize).sum();
+        assertThat("bytes", read, is(capture.getBytes()));
+        assertThat("closed", capture.isClosed(), is(response.isConnectionClose()));
+    }
+}
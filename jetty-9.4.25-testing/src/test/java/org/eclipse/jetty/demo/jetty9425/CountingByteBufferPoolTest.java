@@ -0,0 +1,13 @@
+package org.eclipse.jetty.demo.jetty9425;
+
+import org.eclipse.jetty.demo.common.CommonCountingByteBufferPoolTest;
+
+public class CountingByteBufferPoolTest extends CommonCountingByteBufferPoolTest
+{
+    // Leaks a second buffer on top of the one of the GzipHttpOutputInterceptor
+    @Override
+    protected long getGzipBuffersLeakedPerAbortedResponse()
+    {
+        return 2;
+    }
+}
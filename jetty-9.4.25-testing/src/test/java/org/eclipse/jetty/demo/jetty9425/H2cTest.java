@@ -0,0 +1,7 @@
+package org.eclipse.jetty.demo.jetty9425;
+
+import org.eclipse.jetty.demo.common.CommonH2cTest;
+
+public class H2cTest extends CommonH2cTest
+{
+}
@@ -0,0 +1,7 @@
+package org.eclipse.jetty.demo.jetty9425;
+
+import org.eclipse.jetty.demo.common.CommonTimelineRecorderTest;
+
+public class TimelineRecorderTest extends CommonTimelineRecorderTest
+{
+}
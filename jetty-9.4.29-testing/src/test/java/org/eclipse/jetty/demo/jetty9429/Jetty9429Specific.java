@@ -1,28 +1,86 @@
 package org.eclipse.jetty.demo.jetty9429;
 
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.demo.common.AbstractCommonTest;
+import org.eclipse.jetty.demo.common.CountingThreadPool;
+import org.eclipse.jetty.demo.common.H2cJettySpecific;
 import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.ThreadPoolLimits;
+import org.eclipse.jetty.demo.common.TimelineRecorder;
+import org.eclipse.jetty.demo.common.VirtualThreadJettySpecific;
+import org.eclipse.jetty.demo.common.WriteCounter;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
-public class Jetty9429Specific implements JettySpecific
+public class Jetty9429Specific implements H2cJettySpecific
 {
+    private final ServerConfig config;
+
+    // Used by the ServiceLoader, see JettySpecific.load()
+    public Jetty9429Specific()
+    {
+        this(new ServerConfig());
+    }
+
+    public Jetty9429Specific(ServerConfig config)
+    {
+        this.config = config;
+    }
+
+    @Override
+    public ServerConfig getConfig()
+    {
+        return config;
+    }
+
+    @Override
+    public JettySpecific withConfig(ServerConfig config)
+    {
+        return VirtualThreadJettySpecific.of(new Jetty9429Specific(config));
+    }
+
     @Override
     public Server newServer()
     {
-        Server server = new Server();
+        return newServer(null);
+    }
 
-        HttpConfiguration httpConfiguration = new HttpConfiguration();
-        httpConfiguration.setOutputBufferSize(AbstractCommonTest.OUTPUT_BUFFER_SIZE);
-        httpConfiguration.setOutputAggregationSize(AbstractCommonTest.OUTPUT_AGGREGATION_SIZE);
+    @Override
+    public Server newServer(ThreadPool threadPool)
+    {
+        Server server = new Server(threadPool);
 
-        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(httpConfiguration);
-        ServerConnector connector = new ServerConnector(server, connectionFactory);
+        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(newHttpConfiguration());
+        ServerConnector connector = WriteCounter.newServerConnector(config, server, connectionFactory);
         connector.setPort(0);
+        TimelineRecorder.register(config, connector);
+        server.addConnector(connector);
+
+        return server;
+    }
+
+    @Override
+    public Server newLimitedServer(ThreadPoolLimits limits)
+    {
+        return newServer(newThreadPool(limits));
+    }
+
+    @Override
+    public Server newLocalServer()
+    {
+        Server server = new Server();
+
+        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(newHttpConfiguration());
+        LocalConnector connector = new LocalConnector(server, connectionFactory);
+        TimelineRecorder.register(config, connector);
         server.addConnector(connector);
 
         return server;
@@ -36,4 +94,45 @@ public class Jetty9429Specific implements JettySpecific
         client.setFollowRedirects(false);
         return client;
     }
+
+    @Override
+    public Server newH2cServer(ThreadPool threadPool)
+    {
+        Server server = new Server(threadPool);
+
+        HttpConfiguration httpConfiguration = newHttpConfiguration();
+        HttpConnectionFactory http1 = new HttpConnectionFactory(httpConfiguration);
+        HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfiguration);
+        ServerConnector connector = WriteCounter.newServerConnector(config, server, http1, h2c);
+        connector.setPort(0);
+        TimelineRecorder.register(config, connector);
+        server.addConnector(connector);
+
+        return server;
+    }
+
+    @Override
+    public HttpClient newH2cClient()
+    {
+        SslContextFactory.Client sslContextFactory = new SslContextFactory.Client();
+        HttpClient client = new HttpClient(new HttpClientTransportOverHTTP2(new HTTP2Client()), sslContextFactory);
+        client.setFollowRedirects(false);
+        return client;
+    }
+
+    // The ReservedThreadExecutor belongs to the QueuedThreadPool since 9.4.25
+    private CountingThreadPool newThreadPool(ThreadPoolLimits limits)
+    {
+        CountingThreadPool threadPool = limits.newThreadPool();
+        threadPool.setReservedThreads(limits.getReservedThreads());
+        return threadPool;
+    }
+
+    private HttpConfiguration newHttpConfiguration()
+    {
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        httpConfiguration.setOutputBufferSize(config.getOutputBufferSize());
+        httpConfiguration.setOutputAggregationSize(config.getOutputAggregationSize());
+        return httpConfiguration;
+    }
 }
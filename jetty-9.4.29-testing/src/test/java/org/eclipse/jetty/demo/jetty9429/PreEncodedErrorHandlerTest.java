@@ -0,0 +1,7 @@
+package org.eclipse.jetty.demo.jetty9429;
+
+import org.eclipse.jetty.demo.common.CommonPreEncodedErrorHandlerTest;
+
+public class PreEncodedErrorHandlerTest extends CommonPreEncodedErrorHandlerTest
+{
+}
@@ -0,0 +1,7 @@
+package org.eclipse.jetty.demo.jetty9429;
+
+import org.eclipse.jetty.demo.common.CommonThreadPoolLimitsTest;
+
+public class ThreadPoolLimitsTest extends CommonThreadPoolLimitsTest
+{
+}
@@ -0,0 +1,13 @@
+package org.eclipse.jetty.demo.jetty948;
+
+import org.eclipse.jetty.demo.common.CommonCountingByteBufferPoolTest;
+
+public class CountingByteBufferPoolTest extends CommonCountingByteBufferPoolTest
+{
+    // Leaks the buffer of the GzipHttpOutputInterceptor
+    @Override
+    protected long getGzipBuffersLeakedPerAbortedResponse()
+    {
+        return 1;
+    }
+}
@@ -1,28 +1,82 @@
 package org.eclipse.jetty.demo.jetty948;
 
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.demo.common.AbstractCommonTest;
 import org.eclipse.jetty.demo.common.JettySpecific;
+import org.eclipse.jetty.demo.common.ServerConfig;
+import org.eclipse.jetty.demo.common.ThreadPoolLimits;
+import org.eclipse.jetty.demo.common.TimelineRecorder;
+import org.eclipse.jetty.demo.common.VirtualThreadJettySpecific;
+import org.eclipse.jetty.demo.common.WriteCounter;
+import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 public class Jetty948Specific implements JettySpecific
 {
+    private final ServerConfig config;
+
+    // Used by the ServiceLoader, see JettySpecific.load()
+    public Jetty948Specific()
+    {
+        this(new ServerConfig());
+    }
+
+    public Jetty948Specific(ServerConfig config)
+    {
+        this.config = config;
+    }
+
+    @Override
+    public ServerConfig getConfig()
+    {
+        return config;
+    }
+
+    @Override
+    public JettySpecific withConfig(ServerConfig config)
+    {
+        return VirtualThreadJettySpecific.of(new Jetty948Specific(config));
+    }
+
     @Override
     public Server newServer()
     {
-        Server server = new Server();
+        return newServer(null);
+    }
 
-        HttpConfiguration httpConfiguration = new HttpConfiguration();
-        httpConfiguration.setOutputBufferSize(AbstractCommonTest.OUTPUT_BUFFER_SIZE);
-        httpConfiguration.setOutputAggregationSize(AbstractCommonTest.OUTPUT_AGGREGATION_SIZE);
+    @Override
+    public Server newServer(ThreadPool threadPool)
+    {
+        Server server = new Server(threadPool);
 
-        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(httpConfiguration);
-        ServerConnector connector = new ServerConnector(server, connectionFactory);
+        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(newHttpConfiguration());
+        ServerConnector connector = WriteCounter.newServerConnector(config, server, connectionFactory);
         connector.setPort(0);
+        TimelineRecorder.register(config, connector);
+        server.addConnector(connector);
+
+        return server;
+    }
+
+    @Override
+    public Server newLimitedServer(ThreadPoolLimits limits)
+    {
+        return setReservedThreads(newServer(limits.newThreadPool()), limits);
+    }
+
+    @Override
+    public Server newLocalServer()
+    {
+        Server server = new Server();
+
+        HttpConnectionFactory connectionFactory = new HttpConnectionFactory(newHttpConfiguration());
+        LocalConnector connector = new LocalConnector(server, connectionFactory);
+        TimelineRecorder.register(config, connector);
         server.addConnector(connector);
 
         return server;
@@ -36,4 +90,23 @@ public class Jetty948Specific implements JettySpecific
         client.setFollowRedirects(false);
         return client;
     }
+
+    // 9.4.8 has no QueuedThreadPool.setReservedThreads(), the ReservedThreadExecutor belongs to the SelectorManager
+    private Server setReservedThreads(Server server, ThreadPoolLimits limits)
+    {
+        for (Connector connector : server.getConnectors())
+        {
+            if (connector instanceof ServerConnector)
+                ((ServerConnector)connector).getSelectorManager().setReservedThreads(limits.getReservedThreads());
+        }
+        return server;
+    }
+
+    private HttpConfiguration newHttpConfiguration()
+    {
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        httpConfiguration.setOutputBufferSize(config.getOutputBufferSize());
+        httpConfiguration.setOutputAggregationSize(config.getOutputAggregationSize());
+        return httpConfiguration;
+    }
 }